@@ -0,0 +1,61 @@
+package personal.logicpuzzles;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Cryptogram construction and solving, run as PuzzleBenchmarks shows:
+//   java -cp "build/jmh:lib/*" personal.logicpuzzles.PuzzleBenchmarks CryptogramBenchmark
+// Run it from LogicPuzzlesApp, where the quadgram table is found.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CryptogramBenchmark
+{
+    private static final long SEED = 42;
+    private static final String QUADGRAMS = "main/res/raw/quadgrams.txt";
+    private static final String QUOTE = "Success usually comes to those who are too busy to be looking for it";
+    private static final String PERSON = "- Henry David Thoreau";
+
+    private CryptogramSolver solver;
+    private int[] currentNumbers;
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        try (InputStream in = new FileInputStream(QUADGRAMS))
+        {
+            solver = new CryptogramSolver(QuadgramTable.load(in), SEED);
+        }
+        currentNumbers = new Cryptogram(QUOTE, PERSON, SEED).getCurrentNumbers();
+    }
+
+    // A random number for each letter
+    @Benchmark
+    public Cryptogram generate()
+    {
+        return new Cryptogram(QUOTE, PERSON, SEED);
+    }
+
+    // A full solve with every restart; getEvaluations over the run gives keys per second
+    @Benchmark
+    public char[] solve()
+    {
+        return solver.solve(currentNumbers);
+    }
+}
@@ -0,0 +1,73 @@
+package personal.logicpuzzles;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Nonogram generation, clue building and grading, run as PuzzleBenchmarks shows:
+//   java -cp "build/jmh:lib/*" personal.logicpuzzles.PuzzleBenchmarks NonogramBenchmark
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NonogramBenchmark
+{
+    private static final long SEED = 42;
+
+    @Param({"5", "10", "15"})
+    public int size;
+
+    private NonogramGenerator generator;
+    private NonogramClues rowRuns;
+    private NonogramClues columnRuns;
+    private NonogramGrader grader;
+    private NonogramGrader.Grade grade;
+
+    @Setup
+    public void setUp()
+    {
+        generator = new NonogramGenerator(size, SEED);
+        NonogramGenerator unique = new NonogramGenerator(size, SEED, true);
+        rowRuns = unique.getColumnClues();
+        columnRuns = unique.getRowClues();
+        grader = new NonogramGrader(size);
+        grade = new NonogramGrader.Grade();
+    }
+
+    @Benchmark
+    public NonogramGenerator generate()
+    {
+        return new NonogramGenerator(size, SEED);
+    }
+
+    @Benchmark
+    public NonogramClues rowClues()
+    {
+        return generator.getRowClues();
+    }
+
+    @Benchmark
+    public NonogramClues columnClues()
+    {
+        return generator.getColumnClues();
+    }
+
+    // Batch screening grades into one Grade, so this should not allocate
+    @Benchmark
+    public NonogramGrader.Grade grade()
+    {
+        return grader.grade(rowRuns, columnRuns, grade);
+    }
+}
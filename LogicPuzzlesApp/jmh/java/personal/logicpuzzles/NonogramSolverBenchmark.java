@@ -0,0 +1,71 @@
+package personal.logicpuzzles;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Line solving large nonograms one line at a time against parallel row and column
+// phases. Compare the two modes on a machine with several cores.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NonogramSolverBenchmark
+{
+    private static final long SEED = 42;
+    private static final int BATCH = 8; // Boards verified per operation
+
+    @Param({"50", "100"})
+    public int size;
+
+    @Param({"false", "true"})
+    public boolean parallel;
+
+    private NonogramSolver solver;
+    private NonogramClues[] rowRuns;
+    private NonogramClues[] columnRuns;
+
+    @Setup
+    public void setUp()
+    {
+        solver = new NonogramSolver(size);
+        solver.useParallelPhases(parallel);
+
+        // Random patterns with the generator's default density
+        Random random = new Random(SEED);
+        rowRuns = new NonogramClues[BATCH];
+        columnRuns = new NonogramClues[BATCH];
+        for (int b = 0; b < BATCH; b++)
+        {
+            NonogramGrid grid = new NonogramGrid(size);
+            for (int r = 0; r < size; r++)
+                for (int c = 0; c < size; c++)
+                    grid.set(r, c, random.nextDouble() < 0.70);
+            rowRuns[b] = grid.rowClues();
+            columnRuns[b] = grid.columnClues();
+        }
+    }
+
+    @Benchmark
+    public int verifyBatch()
+    {
+        int solved = 0;
+        for (int b = 0; b < BATCH; b++)
+            if (solver.solve(rowRuns[b], columnRuns[b]) && solver.isSolved())
+                solved++;
+        return solved;
+    }
+}
@@ -0,0 +1,31 @@
+package personal.logicpuzzles;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// Runs the puzzle engine benchmarks with the gc profiler, so every result comes with
+// its allocation rate (gc.alloc.rate.norm is bytes per operation). Pass a regex to run
+// only some of them, e.g. "Sudoku" or "NonogramBenchmark.rowClues".
+//
+// Without a build, from LogicPuzzlesApp, with jmh-core, jmh-generator-annprocess and
+// their jopt-simple and commons-math3 dependencies in lib:
+//   javac -encoding UTF-8 -cp "lib/*" -processor org.openjdk.jmh.generators.BenchmarkProcessor -d build/jmh \
+//       $(grep -L "^import android" main/java/personal/logicpuzzles/*.java) jmh/java/personal/logicpuzzles/*.java
+//   java -cp "build/jmh:lib/*" personal.logicpuzzles.PuzzleBenchmarks Sudoku
+// The processor writes the generated benchmark classes and META-INF/BenchmarkList the
+// runner reads; the android classes are left out as the benchmarks don't need them.
+public class PuzzleBenchmarks
+{
+    public static void main(String[] args) throws RunnerException
+    {
+        String include = args.length > 0 ? args[0] : "personal\\.logicpuzzles\\..*Benchmark";
+        Options options = new OptionsBuilder()
+                .include(include)
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,96 @@
+package personal.logicpuzzles;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+// Sudoku filling, generation and move checking, run as PuzzleBenchmarks shows:
+//   java -cp "build/jmh:lib/*" personal.logicpuzzles.PuzzleBenchmarks SudokuBenchmark
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SudokuBenchmark
+{
+    private static final long SEED = 42;
+
+    @Param({"3", "4", "5"})
+    public int boxSize;
+
+    private Sudoku sudoku;
+    private int[][] board;
+    private SudokuGameBoard gameBoard;
+    private int cell;
+
+    // The board to check moves on is the same seeded puzzle in every run, made once
+    @Setup(Level.Trial)
+    public void setUpTrial()
+    {
+        board = new int[boxSize * boxSize][boxSize * boxSize];
+        gameBoard = new SudokuGameBoard(new Sudoku(boxSize, new SplittableRandom(SEED)).generateUnique());
+    }
+
+    // Reseed before every iteration so each one sees the same sequence of boards
+    @Setup(Level.Iteration)
+    public void setUp()
+    {
+        sudoku = new Sudoku(boxSize, new SplittableRandom(SEED));
+        cell = 0;
+    }
+
+    // Fill a complete grid and nothing else, the search every generation starts with
+    @Benchmark
+    public int[][] fill()
+    {
+        sudoku.generateSolution(board);
+        return board;
+    }
+
+    // Fill a complete grid, then blank out cells at random
+    @Benchmark
+    public int[][] generate()
+    {
+        return sudoku.generate();
+    }
+
+    // Same as generate, reusing one board, should allocate nothing
+    @Benchmark
+    public int[][] generateInto()
+    {
+        return sudoku.generate(board);
+    }
+
+    // Fill a complete grid, then remove clues while the solution stays unique
+    @Benchmark
+    public int[][] generateUnique()
+    {
+        return sudoku.generateUnique(board);
+    }
+
+    // Check every digit in one cell, moving to the next cell on each call
+    @Benchmark
+    public void check(Blackhole blackhole)
+    {
+        int size = gameBoard.getSize();
+        int x = cell / size;
+        int y = cell % size;
+        for (int value = 1; value <= size; value++)
+            blackhole.consume(gameBoard.check(value, x, y));
+        cell = (cell + 1) % (size * size);
+    }
+}
@@ -0,0 +1,109 @@
+package personal.logicpuzzles;
+
+// The player's letter for each cipher number, with the cells every number appears in
+// and a running count of the numbers guessed right. Guessing a number's letter fills
+// all of its cells at once, and checking for a win is a single comparison.
+public class CryptogramBoard {
+
+    private final int[] numbers; // Number of each letter, A first
+    private final int[] currentNumbers;
+    private final int[][] cellsOf = new int[27][]; // Quote positions of each number
+    private final char[] letterOf = new char[27]; // Player's letter per number, '\0' for none
+    private int usedNumbers;
+    private int correct;
+
+    public CryptogramBoard(int[] numbers, int[] currentNumbers) {
+        this.numbers = numbers;
+        this.currentNumbers = currentNumbers;
+
+        int[] counts = new int[27];
+        for (int number : currentNumbers) {
+            if (isCipherNumber(number)) {
+                counts[number]++;
+            }
+        }
+        cellsOf[0] = new int[0];
+        for (int number = 1; number <= 26; number++) {
+            cellsOf[number] = new int[counts[number]];
+            if (counts[number] > 0) {
+                usedNumbers++;
+            }
+            counts[number] = 0;
+        }
+        for (int i = 0; i < currentNumbers.length; i++) {
+            int number = currentNumbers[i];
+            if (isCipherNumber(number)) {
+                cellsOf[number][counts[number]++] = i;
+            }
+        }
+    }
+
+    public CryptogramBoard(Cryptogram cryptogram) {
+        this(cryptogram.getNumbers(), cryptogram.getCurrentNumbers());
+    }
+
+    // A letter's number, not a space (100) or punctuation (0)
+    public static boolean isCipherNumber(int number) {
+        return number >= 1 && number <= 26;
+    }
+
+    // Guess letter for number, or clear it with '\0'. Returns whether anything changed;
+    // every cell in getCells(number) then shows the new letter.
+    public boolean set(int number, char letter) {
+        if (!isCipherNumber(number)) {
+            throw new IllegalArgumentException("Not a cipher number: " + number);
+        }
+        letter = letter >= 'a' && letter <= 'z' ? (char) (letter - 'a' + 'A') : letter;
+        if (letter != '\0' && (letter < 'A' || letter > 'Z')) {
+            letter = '\0';
+        }
+        if (letterOf[number] == letter) {
+            return false;
+        }
+        if (isRight(number)) {
+            correct--;
+        }
+        letterOf[number] = letter;
+        if (isRight(number)) {
+            correct++;
+        }
+        return true;
+    }
+
+    public char getLetter(int number) {
+        return letterOf[number];
+    }
+
+    // Letter shown in cell i of the quote, '\0' if its number has no guess yet
+    public char getCellLetter(int i) {
+        int number = currentNumbers[i];
+        return isCipherNumber(number) ? letterOf[number] : '\0';
+    }
+
+    // Quote positions where number appears; not to be modified
+    public int[] getCells(int number) {
+        return cellsOf[number];
+    }
+
+    public boolean isRight(int number) {
+        char letter = letterOf[number];
+        return letter != '\0' && numbers[letter - 'A'] == number && cellsOf[number].length > 0;
+    }
+
+    // Every number in the quote has its right letter
+    public boolean isSolved() {
+        return correct == usedNumbers;
+    }
+
+    public int getCorrect() {
+        return correct;
+    }
+
+    public int getUsedNumbers() {
+        return usedNumbers;
+    }
+
+    public int[] getCurrentNumbers() {
+        return currentNumbers;
+    }
+}
@@ -3,29 +3,22 @@ package personal.logicpuzzles;
 import android.app.Activity;
 import android.content.Context;
 import android.graphics.Color;
-import android.text.Editable;
-import android.text.InputFilter;
-import android.text.InputType;
-import android.text.TextWatcher;
 import android.view.Gravity;
 import android.view.View;
 import android.widget.Button;
-import android.widget.EditText;
 import android.widget.LinearLayout;
 import android.widget.RelativeLayout;
-import android.widget.Space;
+import android.widget.ScrollView;
 import android.widget.TextView;
 
-import java.util.ArrayList;
-import java.util.List;
-
 public class CryptogramInterface extends LinearLayout {
 
-    private final List<EditText> letterInputs = new ArrayList<>(); // holds inputs reference
-    private final List<Integer> activeNumbers = new ArrayList<>(); // holds active numbers (non 0 or 100)
+    private final CryptogramBoard board;
+    private final CryptogramView cryptogramView;
 
     public CryptogramInterface(Context context, int[] numbers, int[] currentNumbers, String quote, String person) {
         super(context);
+        board = new CryptogramBoard(numbers, currentNumbers);
         setOrientation(VERTICAL);
         setGravity(Gravity.CENTER_HORIZONTAL);
         setGravity(Gravity.CENTER_VERTICAL);
@@ -56,135 +49,26 @@ public class CryptogramInterface extends LinearLayout {
 
         addView(backButton);
 
-        final int maxItemsPerRow = 8;
-        LinearLayout currentRow = null;
-        int indexInRow = 0;
-
-        for (int i = 0; i < currentNumbers.length; i++) {
-            if (indexInRow == 0) {
-                currentRow = new LinearLayout(context);
-                currentRow.setOrientation(LinearLayout.HORIZONTAL);
-                currentRow.setGravity(Gravity.CENTER_HORIZONTAL);
-                currentRow.setLayoutParams(new LayoutParams(
-                        LayoutParams.MATCH_PARENT,
-                        LayoutParams.WRAP_CONTENT
-                ));
-                addView(currentRow);
-            }
-
-            if (currentNumbers[i] == 100) {
-                // Spacer for space character
-                Space space = new Space(context);
-                LinearLayout.LayoutParams spaceParams = new LinearLayout.LayoutParams(60, LayoutParams.WRAP_CONTENT);
-                spaceParams.setMargins(10, 0, 10, 0);
-                space.setLayoutParams(spaceParams);
-                currentRow.addView(space);
-            } else {
-                // Column with EditText and number label
-                LinearLayout letterColumn = new LinearLayout(context);
-                letterColumn.setOrientation(LinearLayout.VERTICAL);
-                letterColumn.setGravity(Gravity.CENTER_HORIZONTAL);
-                letterColumn.setLayoutParams(new LinearLayout.LayoutParams(
-                        LayoutParams.WRAP_CONTENT,
-                        LayoutParams.WRAP_CONTENT
-                ));
-                letterColumn.setPadding(10, 8, 10, 8);
-
-                // Editable letter input
-                EditText letterInput = new EditText(context);
-                letterInput.setEms(1);
-                letterInput.setGravity(Gravity.CENTER);
-                letterInput.setInputType(InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_FLAG_CAP_CHARACTERS);
-                letterInput.setTextSize(24f);
-                letterInput.setFilters(new InputFilter[]{new InputFilter.LengthFilter(1)});
-                letterInput.setLayoutParams(new LinearLayout.LayoutParams(
-                        LayoutParams.WRAP_CONTENT,
-                        LayoutParams.WRAP_CONTENT
-                ));
-
-                if(i%4==0){
-                    letterInput.setText(quote.charAt(i)+"");
-                }
-
-                if (currentNumbers[i] != 100 && currentNumbers[i] != 0) {
-                    letterInputs.add(letterInput);
-                    activeNumbers.add(currentNumbers[i]);
-                }
-
-                // Text change listener
-                letterInput.addTextChangedListener(new TextWatcher() {
-                    @Override
-                    public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
-
-                    @Override
-                    public void onTextChanged(CharSequence s, int start, int before, int count) {}
-
-                    @Override
-                    public void afterTextChanged(Editable s) {
-                        for (int i = 0; i < letterInputs.size(); i++) {
-                            EditText input = letterInputs.get(i);
-                            String letter = input.getText().toString().toUpperCase();
-
-                            if (letter.length() != 1 || letter.charAt(0) < 'A' || letter.charAt(0) > 'Z') {
-                                return;
-                            }
-
-                            int letterValue = numbers[letter.charAt(0) - 'A'];
-
-                            if (letterValue != activeNumbers.get(i)) {
-                                return;
-                            }
-                        }
-                        onWin();
-                    }
-                });
-
-                // Number display
-                TextView numberText = new TextView(context);
-                numberText.setText(String.valueOf(currentNumbers[i]));
-                numberText.setGravity(Gravity.CENTER);
-                numberText.setTextSize(20f);
-                numberText.setLayoutParams(new LinearLayout.LayoutParams(
-                        LayoutParams.WRAP_CONTENT,
-                        LayoutParams.WRAP_CONTENT
-                ));
-
-                // Add views
-                letterColumn.addView(letterInput);
-                letterColumn.addView(numberText);
-                currentRow.addView(letterColumn);
-            }
-
-            indexInRow++;
-
-            // If row is full or last element, check if word continues to next line
-            if (indexInRow == maxItemsPerRow || i == currentNumbers.length - 1) {
-                int nextIndex = i + 1;
-                while (nextIndex < currentNumbers.length && currentNumbers[nextIndex] == 100) {
-                    nextIndex++; // skip spaces
-                }
-
-                boolean isEndOfLine = ((i + 1) % maxItemsPerRow == 0);
-                //int nextIndex = i + 1;
-
-                if (isEndOfLine &&
-                        nextIndex < currentNumbers.length &&
-                        currentNumbers[i] != 100 &&  // current is not space
-                        currentNumbers[nextIndex] != 100) {  // next is not space
-
-                    // Word continues on next line, so add hyphen
-                    TextView hyphen = new TextView(getContext());
-                    hyphen.setText("-");
-                    hyphen.setTextSize(24f);
-                    hyphen.setPadding(10, 0, 0, 0);
-                    currentRow.addView(hyphen);
-                }
-
-
-
-                indexInRow = 0; // reset for next row
+        // The quote scrolls under the back button when it is too long for the screen
+        ScrollView scroll = new ScrollView(context);
+        scroll.setLayoutParams(new LayoutParams(LayoutParams.MATCH_PARENT, 0, 1f));
+        LinearLayout content = new LinearLayout(context);
+        content.setOrientation(VERTICAL);
+        scroll.addView(content);
+        addView(scroll);
+
+        cryptogramView = new CryptogramView(context);
+        cryptogramView.setPadding(20, 40, 20, 0);
+        cryptogramView.setLayoutParams(new LayoutParams(
+                LayoutParams.MATCH_PARENT,
+                LayoutParams.WRAP_CONTENT
+        ));
+        cryptogramView.setOnGuessListener(number -> {
+            if (board.isSolved()) {
+                onWin();
             }
-        }
+        });
+        content.addView(cryptogramView);
 
         // Add quote person at the bottom
         TextView personText = new TextView(context);
@@ -197,7 +81,30 @@ public class CryptogramInterface extends LinearLayout {
                 LayoutParams.WRAP_CONTENT
         ));
 
-        addView(personText);
+        content.addView(personText);
+
+        // Give away letters until a quarter of the letter cells show, about as many as one
+        // hint box in four used to. A hint is a whole number and fills every cell of it,
+        // so numbers are taken from every fourth position only until that many show.
+        int letterCells = 0;
+        for (int number : currentNumbers) {
+            if (CryptogramBoard.isCipherNumber(number)) {
+                letterCells++;
+            }
+        }
+        int shown = 0;
+        for (int i = 0; i < currentNumbers.length && shown < letterCells / 4; i += 4) {
+            int number = currentNumbers[i];
+            if (CryptogramBoard.isCipherNumber(number) && board.getLetter(number) == '\0') {
+                board.set(number, quote.charAt(i));
+                shown += board.getCells(number).length;
+            }
+        }
+        cryptogramView.setBoard(board, quote);
+    }
+
+    public CryptogramBoard getBoard() {
+        return board;
     }
 
     // Method called for on win
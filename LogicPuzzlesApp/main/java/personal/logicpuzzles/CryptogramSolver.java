@@ -0,0 +1,367 @@
+package personal.logicpuzzles;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.CancellationException;
+
+// Cracks a cryptogram without knowing the quote. The first key maps the most common
+// numbers to the most common English letters; hill climbing then swaps the letters of
+// two numbers at a time, keeping swaps that raise the decryption's quadgram score, and
+// restarts from shaken up copies of the best key. A swap only rescores the quadgrams
+// touching the two numbers, so millions of keys can be tried a second. Used to rate
+// how hard a quote is to crack and to give hints.
+public class CryptogramSolver {
+
+    // English letters from most to least common
+    private static final String FREQUENCY_ORDER = "ETAOINSHRDLCUMWFGYPBVKJXQZ";
+
+    // Fewer letters than this do not have enough quadgrams to tell keys apart
+    public static final int MIN_LETTERS = 20;
+
+    // Climbs per solve. Each starts from the best key so far with a few random swaps,
+    // or every other time with so many that it is as good as a fresh random key.
+    private static final int RESTARTS = 100;
+    private static final int PERTURB_SWAPS = 4;
+    private static final int SHUFFLE_SWAPS = 26;
+
+    // Solves used to rate a quote, and the share of letters it must get right to count
+    private static final int RATE_RUNS = 3;
+    public static final double SOLVABLE_FRACTION = 0.9;
+
+    private final float[] scores;
+    private final SplittableRandom random;
+
+    // The cipher: symbol number - 1 of every letter of the quote, in order, with
+    // QuadgramTable.BREAK around every word
+    private int[] cipher = new int[0];
+    private int length;
+    private final int[] used = new int[26]; // Symbols in the cipher, most common first
+    private int usedCount;
+
+    // Quadgram starts touching each symbol, those of symbol s at
+    // starts[startsOffset[s]] up to starts[startsOffset[s + 1]], and likewise positions
+    private int[] starts = new int[0];
+    private final int[] startsOffset = new int[27];
+    private int[] positions = new int[0];
+    private final int[] positionsOffset = new int[27];
+
+    // Current key and its decryption, and the best key found; a break always stays a break
+    private final int[] letterOf = new int[27];
+    private final int[] bestLetterOf = new int[27];
+    private int[] plain = new int[0];
+    private double bestScore;
+
+    // Scratch for counting symbols and building the first key
+    private final int[] counts = new int[26];
+    private final int[] fill = new int[26];
+    private final boolean[] taken = new boolean[26];
+
+    // Quadgram starts rescored by one swap, deduplicated with a stamp per start
+    private int[] touched = new int[0];
+    private int[] mark = new int[0];
+    private int stamp;
+
+    private long evaluations; // Keys scored since this solver was made
+
+    public CryptogramSolver(QuadgramTable table) {
+        this(table, new SplittableRandom());
+    }
+
+    // Same seed gives the same answers
+    public CryptogramSolver(QuadgramTable table, long seed) {
+        this(table, new SplittableRandom(seed));
+    }
+
+    private CryptogramSolver(QuadgramTable table, SplittableRandom random) {
+        this.scores = table.getScores();
+        this.random = random;
+    }
+
+    // Best guess at the letter of every number, indexed by number; '\0' for numbers
+    // not in the quote. currentNumbers is as Cryptogram.getCurrentNumbers gives it.
+    public char[] solve(int[] currentNumbers) {
+        prepare(currentNumbers);
+        seedByFrequency();
+        if (usedCount > 1) {
+            climb();
+        } else {
+            System.arraycopy(letterOf, 0, bestLetterOf, 0, 27);
+        }
+
+        char[] letters = new char[27];
+        for (int i = 0; i < usedCount; i++) {
+            letters[used[i] + 1] = (char) ('A' + bestLetterOf[used[i]]);
+        }
+        return letters;
+    }
+
+    // Share of the quote's letters a solve gets right, averaged over a few solves.
+    // 1 means the quote can be cracked by its letter patterns alone.
+    public double rate(Cryptogram cryptogram) {
+        int[] numbers = cryptogram.getNumbers();
+        int[] currentNumbers = cryptogram.getCurrentNumbers();
+        int right = 0;
+        int letters = 0;
+        for (int run = 0; run < RATE_RUNS; run++) {
+            char[] guess = solve(currentNumbers);
+            for (int number : currentNumbers) {
+                if (number >= 1 && number <= 26) {
+                    letters++;
+                    // numbers[letter] is the number of that letter
+                    if (numbers[guess[number] - 'A'] == number) {
+                        right++;
+                    }
+                }
+            }
+        }
+        return letters == 0 ? 0 : (double) right / letters;
+    }
+
+    // Long enough, and a solve reliably cracks it
+    public boolean isSolvable(Cryptogram cryptogram) {
+        return letterCount(cryptogram.getCurrentNumbers()) >= MIN_LETTERS
+                && rate(cryptogram) >= SOLVABLE_FRACTION;
+    }
+
+    // The most common number whose letter the player does not have the way the solver
+    // reads it, or -1 if they agree everywhere. entered is indexed by number, '\0' or
+    // ' ' where nothing has been entered; the solver's letter is then solve(...)[number].
+    public int hint(int[] currentNumbers, char[] entered) {
+        char[] letters = solve(currentNumbers);
+        for (int i = 0; i < usedCount; i++) {
+            int number = used[i] + 1;
+            char letter = number < entered.length ? Character.toUpperCase(entered[number]) : '\0';
+            if (letter != letters[number]) {
+                return number;
+            }
+        }
+        return -1;
+    }
+
+    public long getEvaluations() {
+        return evaluations;
+    }
+
+    private static int letterCount(int[] currentNumbers) {
+        int count = 0;
+        for (int number : currentNumbers) {
+            if (number >= 1 && number <= 26) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // Pull the letters out of the quote and index where each symbol appears
+    private void prepare(int[] currentNumbers) {
+        // At most a letter and a break for every number, and a break in front
+        int capacity = 2 * currentNumbers.length + 1;
+        if (cipher.length < capacity) {
+            cipher = new int[capacity];
+            plain = new int[capacity];
+            positions = new int[capacity];
+            starts = new int[4 * capacity];
+            touched = new int[8 * capacity];
+            mark = new int[capacity];
+        }
+        int n = 0;
+        cipher[n++] = QuadgramTable.BREAK;
+        for (int number : currentNumbers) {
+            if (number >= 1 && number <= 26) {
+                cipher[n++] = number - 1;
+            } else if (number == 100 && cipher[n - 1] != QuadgramTable.BREAK) {
+                cipher[n++] = QuadgramTable.BREAK;
+            }
+        }
+        if (cipher[n - 1] != QuadgramTable.BREAK) {
+            cipher[n++] = QuadgramTable.BREAK;
+        }
+        length = n;
+
+        // Symbols present, most common first
+        Arrays.fill(counts, 0);
+        for (int i = 0; i < length; i++) {
+            if (cipher[i] != QuadgramTable.BREAK) {
+                counts[cipher[i]]++;
+            }
+        }
+        usedCount = 0;
+        for (int s = 0; s < 26; s++) {
+            if (counts[s] > 0) {
+                int k = usedCount++;
+                while (k > 0 && counts[used[k - 1]] < counts[s]) {
+                    used[k] = used[k - 1];
+                    k--;
+                }
+                used[k] = s;
+            }
+        }
+
+        // Positions of each symbol
+        positionsOffset[0] = 0;
+        for (int s = 0; s < 26; s++) {
+            positionsOffset[s + 1] = positionsOffset[s] + counts[s];
+        }
+        Arrays.fill(fill, 0);
+        for (int i = 0; i < length; i++) {
+            int s = cipher[i];
+            if (s != QuadgramTable.BREAK) {
+                positions[positionsOffset[s] + fill[s]++] = i;
+            }
+        }
+
+        // Quadgram starts touching each symbol, each start once per symbol
+        int quadgrams = Math.max(0, length - 3);
+        int count = 0;
+        for (int s = 0; s < 26; s++) {
+            startsOffset[s] = count;
+            int last = -1;
+            for (int k = positionsOffset[s]; k < positionsOffset[s + 1]; k++) {
+                int p = positions[k];
+                for (int start = Math.max(Math.max(0, p - 3), last + 1); start <= Math.min(p, quadgrams - 1); start++) {
+                    starts[count++] = start;
+                    last = start;
+                }
+            }
+        }
+        startsOffset[26] = count;
+    }
+
+    // Most common symbols get the most common letters
+    private void seedByFrequency() {
+        Arrays.fill(taken, false);
+        for (int i = 0; i < usedCount; i++) {
+            letterOf[used[i]] = FREQUENCY_ORDER.charAt(i) - 'A';
+            taken[letterOf[used[i]]] = true;
+        }
+        // Symbols not in the cipher hold the letters left over, so any swap is a permutation
+        letterOf[QuadgramTable.BREAK] = QuadgramTable.BREAK;
+        int letter = 0;
+        for (int s = 0; s < 26; s++) {
+            if (positionsOffset[s + 1] == positionsOffset[s]) {
+                while (taken[letter]) {
+                    letter++;
+                }
+                letterOf[s] = letter++;
+            }
+        }
+    }
+
+    private void climb() {
+        System.arraycopy(letterOf, 0, bestLetterOf, 0, 27);
+        decode();
+        bestScore = fullScore();
+
+        for (int restart = 0; restart < RESTARTS; restart++) {
+            checkCancelled();
+            if (restart > 0) {
+                System.arraycopy(bestLetterOf, 0, letterOf, 0, 27);
+                int swaps = restart % 2 == 0 ? PERTURB_SWAPS : SHUFFLE_SWAPS;
+                for (int i = 0; i < swaps; i++) {
+                    int s1 = used[random.nextInt(usedCount)];
+                    int s2 = random.nextInt(25);
+                    swapLetters(s1, s2 >= s1 ? s2 + 1 : s2);
+                }
+                decode();
+            }
+            double score = fullScore();
+
+            // Try every swap of a symbol in the cipher until none helps
+            boolean improved = true;
+            while (improved) {
+                checkCancelled();
+                improved = false;
+                for (int i = 0; i < usedCount; i++) {
+                    int s1 = used[i];
+                    for (int s2 = 0; s2 < 26; s2++) {
+                        if (s2 == s1) {
+                            continue;
+                        }
+                        double delta = swapDelta(s1, s2);
+                        evaluations++;
+                        if (delta > 0) {
+                            score += delta;
+                            improved = true;
+                        } else {
+                            swapLetters(s1, s2);
+                            rewrite(s1);
+                            rewrite(s2);
+                        }
+                    }
+                }
+            }
+            if (score > bestScore) {
+                bestScore = score;
+                System.arraycopy(letterOf, 0, bestLetterOf, 0, 27);
+            }
+        }
+    }
+
+    // Give up once the thread is interrupted, as when the draw it was rating is cancelled
+    private static void checkCancelled() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException();
+        }
+    }
+
+    // Swap the letters of two symbols and return how much the score changed
+    private double swapDelta(int s1, int s2) {
+        int count = 0;
+        if (++stamp == 0) {
+            Arrays.fill(mark, 0);
+            stamp = 1;
+        }
+        for (int k = startsOffset[s1]; k < startsOffset[s1 + 1]; k++) {
+            mark[starts[k]] = stamp;
+            touched[count++] = starts[k];
+        }
+        for (int k = startsOffset[s2]; k < startsOffset[s2 + 1]; k++) {
+            if (mark[starts[k]] != stamp) {
+                touched[count++] = starts[k];
+            }
+        }
+
+        double before = sum(count);
+        swapLetters(s1, s2);
+        rewrite(s1);
+        rewrite(s2);
+        return sum(count) - before;
+    }
+
+    private double sum(int count) {
+        double total = 0;
+        for (int i = 0; i < count; i++) {
+            int p = touched[i];
+            total += scores[((plain[p] * 27 + plain[p + 1]) * 27 + plain[p + 2]) * 27 + plain[p + 3]];
+        }
+        return total;
+    }
+
+    private double fullScore() {
+        double total = 0;
+        for (int p = 0; p + 3 < length; p++) {
+            total += scores[((plain[p] * 27 + plain[p + 1]) * 27 + plain[p + 2]) * 27 + plain[p + 3]];
+        }
+        return total;
+    }
+
+    private void swapLetters(int s1, int s2) {
+        int letter = letterOf[s1];
+        letterOf[s1] = letterOf[s2];
+        letterOf[s2] = letter;
+    }
+
+    // Write a symbol's letter into the decryption wherever it appears
+    private void rewrite(int s) {
+        int letter = letterOf[s];
+        for (int k = positionsOffset[s]; k < positionsOffset[s + 1]; k++) {
+            plain[positions[k]] = letter;
+        }
+    }
+
+    private void decode() {
+        for (int i = 0; i < length; i++) {
+            plain[i] = letterOf[cipher[i]];
+        }
+    }
+}
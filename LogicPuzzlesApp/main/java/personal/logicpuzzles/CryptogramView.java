@@ -0,0 +1,308 @@
+package personal.logicpuzzles;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.text.InputType;
+import android.view.KeyEvent;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.inputmethod.BaseInputConnection;
+import android.view.inputmethod.EditorInfo;
+import android.view.inputmethod.InputConnection;
+import android.view.inputmethod.InputMethodManager;
+
+// The whole quote drawn on one canvas: a letter slot over the number of every letter,
+// words wrapped onto lines. Only the lines inside the clip are drawn, so a long quote
+// in a ScrollView costs no more per frame than a short one. Tap a letter to select its
+// number, then type; the view is its own text editor with a single input connection.
+public class CryptogramView extends View {
+
+    // Called after the player's letter for a number changes
+    public interface OnGuessListener {
+        void onGuess(int number);
+    }
+
+    private static final int CELLS_PER_LINE = 10;
+    private static final String[] NUMBER_LABELS = new String[27];
+
+    static {
+        for (int number = 0; number < NUMBER_LABELS.length; number++) {
+            NUMBER_LABELS[number] = String.valueOf(number);
+        }
+    }
+
+    private CryptogramBoard board;
+    private char[] quote = new char[0];
+    private OnGuessListener listener;
+    private int selectedNumber;
+
+    // Where each quote position goes, recomputed when the width changes
+    private int[] lineOf = new int[0];
+    private int[] columnOf = new int[0];
+    private boolean[] hyphenAfter = new boolean[0];
+    private int[] lineStart = new int[1]; // First quote position of each line, and the end
+    private int lines;
+    private float cellWidth;
+    private float lineHeight;
+    private int layoutWidth;
+
+    private final char[] glyph = new char[1];
+    private final Rect clip = new Rect();
+
+    private final Paint slotPaint = new Paint();
+    private final Paint selectedPaint = new Paint();
+    private final Paint letterPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint numberPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+    public CryptogramView(Context context) {
+        super(context);
+        setFocusable(true);
+        setFocusableInTouchMode(true);
+        slotPaint.setColor(Color.parseColor("#4B4592"));
+        selectedPaint.setColor(Color.parseColor("#8A84E2"));
+        letterPaint.setColor(Color.BLACK);
+        letterPaint.setTextAlign(Paint.Align.CENTER);
+        numberPaint.setColor(Color.parseColor("#4B4592"));
+        numberPaint.setTextAlign(Paint.Align.CENTER);
+    }
+
+    public void setBoard(CryptogramBoard board, String quote) {
+        this.board = board;
+        this.quote = quote.toUpperCase().toCharArray();
+        selectedNumber = 0;
+        layoutWidth = 0;
+        requestLayout();
+        invalidate();
+    }
+
+    public void setOnGuessListener(OnGuessListener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int width = MeasureSpec.getSize(widthMeasureSpec);
+        if (width != layoutWidth) {
+            layoutCells(width);
+        }
+        setMeasuredDimension(width, (int) Math.ceil(lines * lineHeight) + getPaddingTop() + getPaddingBottom());
+    }
+
+    // Wrap the quote at spaces. A word longer than a line is split with a hyphen.
+    private void layoutCells(int width) {
+        layoutWidth = width;
+        cellWidth = (float) (width - getPaddingLeft() - getPaddingRight()) / CELLS_PER_LINE;
+        lineHeight = cellWidth * 1.7f;
+        letterPaint.setTextSize(cellWidth * 0.6f);
+        numberPaint.setTextSize(cellWidth * 0.4f);
+        slotPaint.setStrokeWidth(Math.max(2, cellWidth * 0.05f));
+
+        int[] numbers = board == null ? new int[0] : board.getCurrentNumbers();
+        int n = numbers.length;
+        lineOf = new int[n];
+        columnOf = new int[n];
+        hyphenAfter = new boolean[n];
+        lineStart = new int[n + 2];
+
+        int line = 0;
+        int column = 0;
+        int i = 0;
+        while (i < n) {
+            if (numbers[i] == 100) {
+                lineOf[i] = line;
+                columnOf[i] = column;
+                if (column > 0) {
+                    column++;
+                }
+                i++;
+                continue;
+            }
+            int end = i;
+            while (end < n && numbers[end] != 100) {
+                end++;
+            }
+            // Start the word on a new line if it fits there but not here
+            if (column > 0 && column + end - i > CELLS_PER_LINE) {
+                line++;
+                column = 0;
+                lineStart[line] = i;
+            }
+            for (; i < end; i++) {
+                if (column == CELLS_PER_LINE - 1 && end - i > 1) {
+                    hyphenAfter[i - 1] = true;
+                    line++;
+                    column = 0;
+                    lineStart[line] = i;
+                }
+                lineOf[i] = line;
+                columnOf[i] = column++;
+            }
+        }
+        lines = n == 0 ? 0 : line + 1;
+        lineStart[lines] = n;
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        if (board == null || lines == 0) {
+            return;
+        }
+        int[] numbers = board.getCurrentNumbers();
+
+        // Only the lines that show, e.g. inside a ScrollView
+        canvas.getClipBounds(clip);
+        int top = getPaddingTop();
+        int firstLine = Math.max(0, (int) ((clip.top - top) / lineHeight));
+        int lastLine = Math.min(lines - 1, (int) ((clip.bottom - top) / lineHeight));
+        if (firstLine > lastLine) {
+            return;
+        }
+
+        for (int i = lineStart[firstLine]; i < lineStart[lastLine + 1]; i++) {
+            int number = numbers[i];
+            if (number == 100) {
+                continue;
+            }
+            float left = getPaddingLeft() + columnOf[i] * cellWidth;
+            float centerX = left + cellWidth / 2;
+            float lineTop = top + lineOf[i] * lineHeight;
+            float slotBottom = lineTop + cellWidth;
+
+            if (CryptogramBoard.isCipherNumber(number)) {
+                if (number == selectedNumber) {
+                    canvas.drawRect(left + 2, lineTop, left + cellWidth - 2, slotBottom, selectedPaint);
+                }
+                canvas.drawLine(left + cellWidth * 0.15f, slotBottom, left + cellWidth * 0.85f, slotBottom, slotPaint);
+                char letter = board.getCellLetter(i);
+                if (letter != '\0') {
+                    glyph[0] = letter;
+                    canvas.drawText(glyph, 0, 1, centerX, slotBottom - cellWidth * 0.2f, letterPaint);
+                }
+                canvas.drawText(NUMBER_LABELS[number], centerX, slotBottom + cellWidth * 0.5f, numberPaint);
+            } else {
+                // Punctuation shows as itself
+                glyph[0] = quote[i];
+                canvas.drawText(glyph, 0, 1, centerX, slotBottom - cellWidth * 0.2f, letterPaint);
+            }
+            if (hyphenAfter[i]) {
+                glyph[0] = '-';
+                canvas.drawText(glyph, 0, 1, centerX + cellWidth, slotBottom - cellWidth * 0.2f, letterPaint);
+            }
+        }
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        if (board == null || !isEnabled()) {
+            return false;
+        }
+        if (event.getAction() == MotionEvent.ACTION_UP) {
+            int cell = cellAt(event.getX(), event.getY());
+            if (cell >= 0 && CryptogramBoard.isCipherNumber(board.getCurrentNumbers()[cell])) {
+                select(board.getCurrentNumbers()[cell]);
+                requestFocus();
+                InputMethodManager keyboard = (InputMethodManager) getContext().getSystemService(Context.INPUT_METHOD_SERVICE);
+                if (keyboard != null) {
+                    keyboard.showSoftInput(this, InputMethodManager.SHOW_IMPLICIT);
+                }
+            }
+        }
+        return true;
+    }
+
+    // Quote position under a point, or -1
+    private int cellAt(float x, float y) {
+        int line = (int) ((y - getPaddingTop()) / lineHeight);
+        int column = (int) ((x - getPaddingLeft()) / cellWidth);
+        if (line < 0 || line >= lines || x < getPaddingLeft()) {
+            return -1;
+        }
+        for (int i = lineStart[line]; i < lineStart[line + 1]; i++) {
+            if (columnOf[i] == column && board.getCurrentNumbers()[i] != 100) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void select(int number) {
+        if (number != selectedNumber) {
+            selectedNumber = number;
+            invalidate();
+        }
+    }
+
+    // Enter a letter for the selected number, '\0' to clear it. After a letter the next
+    // number in the quote without one is selected.
+    private void guess(char letter) {
+        if (board == null || selectedNumber == 0 || !isEnabled()) {
+            return;
+        }
+        int number = selectedNumber;
+        if (board.set(number, letter)) {
+            if (letter != '\0') {
+                selectNextEmpty(number);
+            }
+            invalidate();
+            if (listener != null) {
+                listener.onGuess(number);
+            }
+        }
+    }
+
+    private void selectNextEmpty(int after) {
+        int[] numbers = board.getCurrentNumbers();
+        int start = board.getCells(after)[0];
+        for (int k = 1; k <= numbers.length; k++) {
+            int number = numbers[(start + k) % numbers.length];
+            if (CryptogramBoard.isCipherNumber(number) && board.getLetter(number) == '\0') {
+                selectedNumber = number;
+                return;
+            }
+        }
+    }
+
+    @Override
+    public boolean onCheckIsTextEditor() {
+        return true;
+    }
+
+    @Override
+    public InputConnection onCreateInputConnection(EditorInfo outAttrs) {
+        outAttrs.inputType = InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_FLAG_CAP_CHARACTERS
+                | InputType.TYPE_TEXT_FLAG_NO_SUGGESTIONS;
+        outAttrs.imeOptions = EditorInfo.IME_ACTION_DONE | EditorInfo.IME_FLAG_NO_EXTRACT_UI;
+        return new BaseInputConnection(this, false) {
+            @Override
+            public boolean commitText(CharSequence text, int newCursorPosition) {
+                if (text.length() > 0) {
+                    guess(text.charAt(text.length() - 1));
+                }
+                return true;
+            }
+
+            @Override
+            public boolean deleteSurroundingText(int beforeLength, int afterLength) {
+                guess('\0');
+                return true;
+            }
+        };
+    }
+
+    @Override
+    public boolean onKeyDown(int keyCode, KeyEvent event) {
+        if (keyCode >= KeyEvent.KEYCODE_A && keyCode <= KeyEvent.KEYCODE_Z) {
+            guess((char) ('A' + keyCode - KeyEvent.KEYCODE_A));
+            return true;
+        }
+        if (keyCode == KeyEvent.KEYCODE_DEL) {
+            guess('\0');
+            return true;
+        }
+        return super.onKeyDown(keyCode, event);
+    }
+}
@@ -0,0 +1,256 @@
+package personal.logicpuzzles;
+
+// Exact cover solver for Sudoku using Knuth's Algorithm X with dancing links.
+// The node matrix is built once in the constructor and every solve covers and
+// uncovers it in place, so solving a board allocates nothing.
+public class DancingLinks
+{
+    // Called for every solution found by enumerate, return false to stop early
+    public interface SolutionListener
+    {
+        boolean onSolution(int[][] solution);
+    }
+
+    private final int size;
+    private final int columns;
+    private final int root;
+
+    // Node links, one slot per node; the first columns+1 slots are the headers and the root
+    private final int[] left, right, up, down;
+    private final int[] header; // Column header of each node
+    private final int[] option; // Candidate (cell * size + digit) of each node
+    private final int[] count;  // Number of nodes still in each column
+
+    private final int[] first;  // First node of each candidate's row
+    private final boolean[] covered;
+    private final int[] stack;  // Rows chosen by the search, one per depth
+
+    private int[][] solution;
+    private SolutionListener listener;
+    private boolean stopped;
+
+    public DancingLinks(int boxSize)
+    {
+        size = boxSize * boxSize;
+        int cells = size * size;
+        int options = cells * size;
+
+        // Four constraints: each cell once, and each digit once per row, column and box
+        columns = 4 * cells;
+        root = columns;
+        int nodes = columns + 1 + options * 4;
+
+        left = new int[nodes];
+        right = new int[nodes];
+        up = new int[nodes];
+        down = new int[nodes];
+        header = new int[nodes];
+        option = new int[nodes];
+        count = new int[columns];
+        first = new int[options];
+        covered = new boolean[columns];
+        stack = new int[cells];
+
+        // Circular list of headers around the root
+        for (int c = 0; c <= columns; c++)
+        {
+            left[c] = c == 0 ? root : c - 1;
+            right[c] = c == root ? 0 : c + 1;
+            up[c] = down[c] = header[c] = c;
+        }
+
+        // One row of four nodes for each (row, column, digit) option
+        int node = columns + 1;
+        for (int r = 0; r < size; r++)
+            for (int c = 0; c < size; c++)
+                for (int d = 0; d < size; d++)
+                {
+                    int b = (r / boxSize) * boxSize + c / boxSize;
+                    int id = (r * size + c) * size + d;
+                    first[id] = node;
+                    int start = node;
+                    int[] targets = {
+                            r * size + c,
+                            cells + r * size + d,
+                            2 * cells + c * size + d,
+                            3 * cells + b * size + d};
+                    for (int col : targets)
+                    {
+                        // Append to the bottom of the column
+                        header[node] = col;
+                        option[node] = id;
+                        up[node] = up[col];
+                        down[node] = col;
+                        down[up[col]] = node;
+                        up[col] = node;
+                        count[col]++;
+
+                        // Append to the end of the row
+                        left[node] = node == start ? node : node - 1;
+                        right[node] = start;
+                        if (node != start)
+                        {
+                            right[node - 1] = node;
+                            left[start] = node;
+                        }
+                        node++;
+                    }
+                }
+    }
+
+    // Solve a board in place, returns false if it has no solution
+    public boolean solve(int[][] board)
+    {
+        return enumerate(board, 1, null) == 1;
+    }
+
+    // Count the solutions of a board, stopping once limit is reached
+    public int countSolutions(int[][] board, int limit)
+    {
+        return run(board, limit);
+    }
+
+    // Report each solution to the listener, up to limit solutions. The board
+    // passed to the listener is filled in place and reused for every solution.
+    public int enumerate(int[][] board, int limit, SolutionListener listener)
+    {
+        this.listener = listener;
+        solution = board;
+        int found = run(board, limit);
+        this.listener = null;
+        solution = null;
+        return found;
+    }
+
+    private int run(int[][] board, int limit)
+    {
+        // Select the givens, stopping at the first one that clashes
+        int givens = 0;
+        boolean valid = true;
+        for (int r = 0; r < size && valid; r++)
+            for (int c = 0; c < size && valid; c++)
+                if (board[r][c] != 0)
+                {
+                    int row = first[(r * size + c) * size + board[r][c] - 1];
+                    valid = select(row);
+                    if (valid)
+                        stack[givens++] = row;
+                }
+
+        stopped = false;
+        int found = valid ? search(givens, limit) : 0;
+
+        // Put the matrix back for the next solve
+        for (int i = givens - 1; i >= 0; i--)
+            deselect(stack[i]);
+
+        return found;
+    }
+
+    private int search(int depth, int limit)
+    {
+        // Every constraint satisfied
+        if (right[root] == root)
+        {
+            report(depth);
+            return 1;
+        }
+
+        // Pick the column with the fewest remaining options
+        int col = right[root];
+        for (int c = right[col]; c != root; c = right[c])
+            if (count[c] < count[col])
+                col = c;
+        if (count[col] == 0)
+            return 0;
+
+        int found = 0;
+        cover(col);
+        for (int row = down[col]; row != col && found < limit && !stopped; row = down[row])
+        {
+            stack[depth] = row;
+            for (int j = right[row]; j != row; j = right[j])
+                cover(header[j]);
+            found += search(depth + 1, limit - found);
+            for (int j = left[row]; j != row; j = left[j])
+                uncover(header[j]);
+        }
+        uncover(col);
+        return found;
+    }
+
+    // Write the chosen rows into the board and pass it on
+    private void report(int depth)
+    {
+        if (solution == null)
+            return;
+        for (int i = 0; i < depth; i++)
+        {
+            int id = option[stack[i]];
+            int cell = id / size;
+            solution[cell / size][cell % size] = id % size + 1;
+        }
+        if (listener != null && !listener.onSolution(solution))
+            stopped = true;
+    }
+
+    // Cover every column of a given's row, returns false if one is already taken
+    private boolean select(int row)
+    {
+        int j = row;
+        do
+        {
+            if (covered[header[j]])
+            {
+                // Undo the columns covered so far
+                while (j != row)
+                {
+                    j = left[j];
+                    uncover(header[j]);
+                }
+                return false;
+            }
+            cover(header[j]);
+            j = right[j];
+        } while (j != row);
+        return true;
+    }
+
+    private void deselect(int row)
+    {
+        int j = row;
+        do
+        {
+            j = left[j];
+            uncover(header[j]);
+        } while (j != row);
+    }
+
+    private void cover(int col)
+    {
+        covered[col] = true;
+        right[left[col]] = right[col];
+        left[right[col]] = left[col];
+        for (int i = down[col]; i != col; i = down[i])
+            for (int j = right[i]; j != i; j = right[j])
+            {
+                down[up[j]] = down[j];
+                up[down[j]] = up[j];
+                count[header[j]]--;
+            }
+    }
+
+    private void uncover(int col)
+    {
+        for (int i = up[col]; i != col; i = up[i])
+            for (int j = left[i]; j != i; j = left[j])
+            {
+                count[header[j]]++;
+                down[up[j]] = j;
+                up[down[j]] = j;
+            }
+        right[left[col]] = col;
+        left[right[col]] = col;
+        covered[col] = false;
+    }
+}
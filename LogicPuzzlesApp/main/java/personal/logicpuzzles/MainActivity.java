@@ -3,22 +3,24 @@ package personal.logicpuzzles;
 import androidx.appcompat.app.AppCompatActivity;
 
 import android.app.AlertDialog;
-import android.content.Context;
 import android.content.DialogInterface;
 import android.os.Bundle;
-import android.text.Editable;
-import android.text.TextWatcher;
 import android.view.View;
-import android.widget.EditText;
+import android.widget.RadioGroup;
 import android.widget.TextView;
+import android.widget.Toast;
 
-import java.io.BufferedReader;
-import java.io.FileInputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
-import java.util.StringTokenizer;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
 
 
 //Main program
@@ -32,9 +34,18 @@ public class MainActivity extends AppCompatActivity {
     String currentScreen;
 
     private int[][] initialBoard = new int[9][9];
-    private final String FILE_NAME = "currentBoard";
-    private final String FILE_NAME_INITIAL = "initial";
-    int screenSize;
+    private final String SAVE_FILE_NAME = "sudoku.sav"; // Initial and current board, see PuzzleSave
+
+    // Puzzles are generated in the background so new games start instantly
+    private PuzzleGenerationService generationService;
+    private final Map<String, PuzzleGenerationService.PuzzleQueue<SudokuGameBoard>> sudokuQueues = new HashMap<>();
+    private PuzzleGenerationService.PuzzleQueue<Cryptogram> cryptogramQueue;
+    private final Map<Integer, PuzzleGenerationService.PuzzleQueue<NonogramGenerator>> nonogramQueues = new HashMap<>();
+
+    // Quadgram scores for the cryptogram solver, read from res/raw on first use
+    private QuadgramTable quadgrams;
+    // Quotes for cryptograms, mapped on first use
+    private QuoteCorpus quoteCorpus;
 
     //Main screen of app
     protected void onCreate(Bundle savedInstanceState) {
@@ -43,45 +54,98 @@ public class MainActivity extends AppCompatActivity {
 
         currentScreen = "Main";
 
-        screenSize = getWindowManager().getCurrentWindowMetrics().getBounds().width();
+        // Start filling the puzzle queues
+        generationService = new PuzzleGenerationService();
+        sudokuQueue(9, SudokuGrader.Difficulty.EASY);
+        cryptogramQueue = generationService.queue(this::solvableCryptogram);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        generationService.shutdown();
     }
 
 
     /////////////////////////////// SUDOKU ///////////////////////////////
     ///
+    int sudokuSize = 9;
+    SudokuGrader.Difficulty sudokuDifficulty = SudokuGrader.Difficulty.EASY;
+
     public void sudokuButton(View v){
+        // Set content view
+        setContentView(R.layout.activity_sudoku_size);
+        // Start generating boards of the chosen level while the size is being chosen
+        RadioGroup levelGroup = findViewById(R.id.sudokuLevel);
+        levelGroup.check(sudokuDifficulty == SudokuGrader.Difficulty.HARD ? R.id.radioHard
+                : sudokuDifficulty == SudokuGrader.Difficulty.MEDIUM ? R.id.radioMedium : R.id.radioEasy);
+        levelGroup.setOnCheckedChangeListener((group, checkedId) -> {
+            if(checkedId == R.id.radioHard){
+                sudokuDifficulty = SudokuGrader.Difficulty.HARD;
+            }else if(checkedId == R.id.radioMedium){
+                sudokuDifficulty = SudokuGrader.Difficulty.MEDIUM;
+            }else{
+                sudokuDifficulty = SudokuGrader.Difficulty.EASY;
+            }
+            sudokuSizeQueues();
+        });
+        sudokuSizeQueues();
+    }
+    // Generate every size at the chosen level, and stop generating any other level
+    private void sudokuSizeQueues(){
+        keepSudokuQueues(sudokuDifficulty, 9, 16, 25);
+        sudokuQueue(9, sudokuDifficulty);
+        sudokuQueue(16, sudokuDifficulty);
+        sudokuQueue(25, sudokuDifficulty);
+    }
+    public void sudokuSize(View v){
+        if(v.getId() == R.id.buttonSixteen){
+            sudokuSize = 16;
+        }else if(v.getId() == R.id.buttonTwentyFive){
+            sudokuSize = 25;
+        }else{
+            sudokuSize = 9;
+        }
         sudoku();
     }
     public void sudoku(){
+        int SIZE = sudokuSize;
+        // Take a ready game
+        SudokuGameBoard board = sudokuQueue(SIZE, sudokuDifficulty).take();
+        if(board == null){
+            notReady();
+            return;
+        }
+        // Only the size being played needs more boards
+        keepSudokuQueues(sudokuDifficulty, SIZE);
         currentScreen = "Sudoku";
-        int SIZE = 9;
-        // Create new game
-        sudokuGameBoard = new SudokuGameBoard(SIZE);
-        // Create new game and store the initial state
+        sudokuGameBoard = board;
+        // Store the initial state
         initialBoard = copyBoard(sudokuGameBoard.getBoard());
 
         // Create interface
-        int width = screenSize/SIZE;
-        sudokuAppInterface = new SudokuInterface(this, SIZE, width);
+        sudokuAppInterface = new SudokuInterface(this, SIZE);
         // Set content view
         setContentView(sudokuAppInterface);
         // Display initial board
-        sudokuAppInterface.drawInitialBoard(sudokuGameBoard.getBoard());
-        // Attach event handlers
-        for(int i=0; i<sudokuGameBoard.getBoard().length; i++){
-            for(int j=0; j<sudokuGameBoard.getBoard().length; j++){
-                SudokuTextChangeHandler textchange = new SudokuTextChangeHandler(i, j);
-                sudokuAppInterface.setTextChangeListener(textchange, i, j);
-            }
-        }
+        sudokuAppInterface.setBoard(sudokuGameBoard);
+        // Attach event handler for the number pad
+        sudokuAppInterface.setCellInputListener(new SudokuInputHandler());
 
         // Attach OnClickListener for New Board button
         sudokuAppInterface.getNewButton().setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View v) {
-                sudokuGameBoard = new SudokuGameBoard(SIZE);
-                initialBoard = sudokuGameBoard.getBoard(); // Reset initial board to new current
-                sudokuAppInterface.drawInitialBoard(initialBoard);
+                // The size shown, which a retrieved save may have changed
+                keepSudokuQueues(sudokuDifficulty, sudokuSize);
+                SudokuGameBoard board = sudokuQueue(sudokuSize, sudokuDifficulty).take();
+                if(board == null){
+                    notReady();
+                    return;
+                }
+                sudokuGameBoard = board;
+                initialBoard = copyBoard(sudokuGameBoard.getBoard()); // Reset initial board to new current
+                sudokuAppInterface.setBoard(sudokuGameBoard);
             }
         });
 
@@ -89,8 +153,14 @@ public class MainActivity extends AppCompatActivity {
         sudokuAppInterface.getSaveButton().setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View v) {
-                saveFile(FILE_NAME, sudokuGameBoard.getBoard()); // Save the modified board
-                saveFile(FILE_NAME_INITIAL, initialBoard);  // Save the initial board
+                // Save the initial and the modified board together
+                PuzzleSave save = new PuzzleSave(PuzzleSave.TYPE_SUDOKU, initialBoard, sudokuGameBoard.getBoard());
+                try {
+                    save.write(new File(getFilesDir(), SAVE_FILE_NAME));
+                    Toast.makeText(MainActivity.this, "Board saved", Toast.LENGTH_SHORT).show();
+                } catch (IOException e) {
+                    Toast.makeText(MainActivity.this, "Could not save the board: " + e.getMessage(), Toast.LENGTH_LONG).show();
+                }
             }
         });
 
@@ -98,137 +168,86 @@ public class MainActivity extends AppCompatActivity {
         sudokuAppInterface.getRetrieveButton().setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View v) {
-                int[][] loadedInitialBoard = readFile(FILE_NAME_INITIAL);
-                initialBoard = copyBoard(loadedInitialBoard);
-                // Set the board to the saved board and draw it on screen
-                sudokuGameBoard.setBoard(loadedInitialBoard);
-                sudokuAppInterface.drawInitialBoard(loadedInitialBoard);
-
-                int[][] board = readFile(FILE_NAME);
-                // Iterate through and set the user entered numbers that were saved
-                for(int i=0; i<board.length; i++){
-                    for(int j=0; j<board.length; j++){
-                        if(initialBoard[i][j] != board[i][j]) {
-                            sudokuGameBoard.set(board[i][j], i, j); // Set number in board
-                            sudokuAppInterface.setText(board[i][j]+"", i, j); // Set text on screen
-                        }
+                PuzzleSave save;
+                try {
+                    save = PuzzleSave.read(new File(getFilesDir(), SAVE_FILE_NAME));
+                    if(save.getType() != PuzzleSave.TYPE_SUDOKU){
+                        throw new IOException("Not a sudoku save");
                     }
+                } catch (FileNotFoundException e) {
+                    Toast.makeText(MainActivity.this, "No saved board", Toast.LENGTH_SHORT).show();
+                    return;
+                } catch (IOException e) {
+                    Toast.makeText(MainActivity.this, "Could not load the board: " + e.getMessage(), Toast.LENGTH_LONG).show();
+                    return;
                 }
-            }
-        });
-    }
 
-    public boolean sudokuCheckWin(){
-        for(int i=0; i<sudokuGameBoard.getBoard().length; i++){
-            for(int j=0; j<sudokuGameBoard.getBoard().length; j++){
-                // If all spots are not full
-                if(sudokuGameBoard.getBoard()[i][j] == 0){
-                    return false; // Return false = user can keep playing
-                }
+                // Build the saved game on its own, so a save of another size needs no new
+                // puzzle; the board view resizes itself to it
+                sudokuGameBoard = SudokuGameBoard.restore(save.getInitial(), save.getCurrent());
+                sudokuSize = sudokuGameBoard.getSize();
+                initialBoard = copyBoard(save.getInitial());
+                // Draw the restored board on screen
+                sudokuAppInterface.setBoard(sudokuGameBoard);
             }
-        }
-        return true; // All spots are full = return true = user has won
+        });
     }
 
-    // Utility method to deep copy the board (to preserve the initial state)
-    private int[][] copyBoard(int[][] originalBoard) {
-        int[][] copy = new int[9][9];
-        for (int i = 0; i < 9; i++) {
-            System.arraycopy(originalBoard[i], 0, copy[i], 0, 9);
+    // Queue of ready sudokus for one size and level, created on first use
+    private PuzzleGenerationService.PuzzleQueue<SudokuGameBoard> sudokuQueue(int size, SudokuGrader.Difficulty difficulty){
+        String key = sudokuKey(size, difficulty);
+        PuzzleGenerationService.PuzzleQueue<SudokuGameBoard> queue = sudokuQueues.get(key);
+        if(queue == null){
+            queue = generationService.queue(() -> new SudokuGameBoard(size, difficulty));
+            sudokuQueues.put(key, queue);
         }
-        return copy;
+        return queue;
     }
 
-    private void saveFile(String fileName, int[][] boardToSave){
-        try {
-            // Open file to write to
-            FileOutputStream fout = openFileOutput(fileName, Context.MODE_PRIVATE);
-
-            String boardAsString = "";
-
-            // Turn board into string
-            for(int i=0; i<boardToSave.length; i++){
-                for(int j=0; j<boardToSave.length; j++){
-                    boardAsString += boardToSave[i][j] + " ";
-                }
+    // Cancel the queues of every size and level except these, so boards nobody is going
+    // to play don't hold on to the generator threads
+    private void keepSudokuQueues(SudokuGrader.Difficulty difficulty, int... sizes){
+        Iterator<Map.Entry<String, PuzzleGenerationService.PuzzleQueue<SudokuGameBoard>>> entries = sudokuQueues.entrySet().iterator();
+        while(entries.hasNext()){
+            Map.Entry<String, PuzzleGenerationService.PuzzleQueue<SudokuGameBoard>> entry = entries.next();
+            boolean keep = false;
+            for(int size : sizes){
+                keep |= entry.getKey().equals(sudokuKey(size, difficulty));
+            }
+            if(!keep){
+                entry.getValue().cancel();
+                entries.remove();
             }
-            // Convert to bytes and write the string to file
-            fout.write(boardAsString.getBytes());
-            fout.close();
-        } catch (IOException e) {
-            // error occured
         }
     }
 
-    private int[][] readFile(String fileName){
-        int[][] board = new int[9][9];
-        try {
-            // Open file and setup BufferedReader
-            FileInputStream fin = openFileInput(fileName);
-            InputStreamReader inputReader = new InputStreamReader(fin);
-            BufferedReader bufferedReader = new BufferedReader(inputReader);
-
-            // Read the file into a string
-            String boardInputString = bufferedReader.readLine();
-
-            // Use a tokenizer with space as the delimiter
-            StringTokenizer tokenizer = new StringTokenizer(boardInputString, " ");
-
-            // Recreate an int[][] for board
-            for(int i=0; i<9; i++){
-                for(int j=0; j<9; j++){
-                    String nextToken = tokenizer.nextToken();
-                    // Turn next number into an int and put it in board
-                    board[i][j] = Integer.parseInt(nextToken);
-                }
-            }
+    private static String sudokuKey(int size, SudokuGrader.Difficulty difficulty){
+        return size + " " + difficulty;
+    }
 
-            fin.close();
-            inputReader.close();
-            bufferedReader.close();
+    public boolean sudokuCheckWin(){
+        // All spots are full = user has won, the board never accepts a clashing number
+        return sudokuGameBoard.isSolved();
+    }
 
-        } catch (IOException e) {
-            // error occured
+    // Utility method to deep copy the board (to preserve the initial state)
+    private int[][] copyBoard(int[][] originalBoard) {
+        int size = originalBoard.length;
+        int[][] copy = new int[size][size];
+        for (int i = 0; i < size; i++) {
+            System.arraycopy(originalBoard[i], 0, copy[i], 0, size);
         }
-        return board;
+        return copy;
     }
 
-    private class SudokuTextChangeHandler implements TextWatcher
+    private class SudokuInputHandler implements SudokuBoardView.OnCellInputListener
     {
-        int x;
-        int y;
-        public SudokuTextChangeHandler(int x, int y){
-            this.x = x;
-            this.y = y;
-        }
-        @Override
-        public void beforeTextChanged(CharSequence charSequence, int i, int i1, int i2) {
-        }
-
-        @Override
-        public void onTextChanged(CharSequence charSequence, int i, int i1, int i2) {
-        }
-
         // Do this when the user inputs a number on board
         @Override
-        public void afterTextChanged(Editable editable) {
-            String input = sudokuAppInterface.getInput(x, y);
-            if(input.equals("")){ // If input is blank
-                sudokuGameBoard.set(0, x, y); // Set 0
-            }else if(input.equals("0")){ // If input is 0
-                sudokuGameBoard.set(0, x, y); // Set 0
-                sudokuAppInterface.clear(x, y); // Set blank on display
-            }else if(input.length() > 1){ // If input is too long
-                sudokuGameBoard.set(0, x, y); // Set 0
-                sudokuAppInterface.clear(x, y); // Set blank on display
-            }else{
-                int value = Integer.parseInt(input);
-                if(sudokuGameBoard.check(value, x, y)){ // If you can place that number there
-                    sudokuGameBoard.set(value, x, y); // Set value
-                }else{ // If you cannot place that number there
-                    sudokuGameBoard.set(0, x, y); // Set value to 0
-                    sudokuAppInterface.clear(x, y); // Clear value
-                }
+        public void onCellInput(int x, int y, int value) {
+            // Set value, set checks that it fits
+            if(!sudokuGameBoard.set(value, x, y)){ // If you cannot place that number there
+                sudokuGameBoard.set(0, x, y); // Clear value
             }
             if(sudokuCheckWin()) { // If the user has won
                 showDialogBox(); // Display winning message
@@ -239,50 +258,78 @@ public class MainActivity extends AppCompatActivity {
     /////////////////////////////// NONOGRAM ///////////////////////////////
     NonogramGenerator nonogramGameBoard;
     NonogramInterface nonogramAppInterface;
+    private static final int[] NONOGRAM_SIZES = {5, 10, 15, 20, 25, 30};
 
     public void nonogramButton (View v){
         nonogram();
     }
     public void nonogram(){
         currentScreen = "Nonogram";
+        // Start generating every size while the size is being chosen
+        for(int size : NONOGRAM_SIZES){
+            nonogramQueue(size);
+        }
         // Set content view
         setContentView(R.layout.activity_nonogram_size);
     }
     public void nonogramSize(View v){
-        int SIZE = -1;
-        if(v.getId() == R.id.buttonFive) {
+        int SIZE;
+        if(v.getId() == R.id.buttonTen){
+            SIZE = 10;
+        }else if(v.getId() == R.id.buttonFifteen){
+            SIZE = 15;
+        }else if(v.getId() == R.id.buttonTwenty){
+            SIZE = 20;
+        }else if(v.getId() == R.id.buttonTwentyFive){
+            SIZE = 25;
+        }else if(v.getId() == R.id.buttonThirty){
+            SIZE = 30;
+        }else{
             SIZE = 5;
         }
-        //  SUPPORT FOR OTHER SIZES ?? (not yet implemented)
-//        }else if(v.getId() == R.id.buttonTen){
-//            SIZE = 10;
-//        }
-//        else if(v.getId() == R.id.buttonFifteen){
-//            SIZE = 15;
-//        }
-        // Create new game
-        nonogramGameBoard = new NonogramGenerator(SIZE);
+        // Take a ready game
+        NonogramGenerator board = nonogramQueue(SIZE).take();
+        if(board == null){
+            notReady();
+            return;
+        }
+        // Only the size being played needs more boards
+        keepNonogramQueue(SIZE);
+        nonogramGameBoard = board;
 
         // Create interface
-        int width = screenSize/SIZE/4;
-        width = width*3;
-        nonogramAppInterface = new NonogramInterface(this, SIZE, width, nonogramGameBoard);
+        nonogramAppInterface = new NonogramInterface(this, SIZE, nonogramGameBoard);
         // Set content view
         setContentView(nonogramAppInterface);
     }
 
-    public boolean nonogramCheckWin(){
-        int[][] goalGrid = nonogramGameBoard.getGrid();
-        int[][] currentGrid = nonogramAppInterface.getButtonStates();
-
-        for(int i=0; i<goalGrid.length; i++){
-            for(int j=0; j<goalGrid.length; j++){
-                // If all spots are not the same
-                if(goalGrid[i][j] != currentGrid[i][j]){
-                    return false; // Return false = user can keep playing
-                }
+    // Queue of ready nonograms for one size, created on first use
+    private PuzzleGenerationService.PuzzleQueue<NonogramGenerator> nonogramQueue(int size){
+        PuzzleGenerationService.PuzzleQueue<NonogramGenerator> queue = nonogramQueues.get(size);
+        if(queue == null){
+            queue = generationService.queue(() -> new NonogramGenerator(size, true));
+            nonogramQueues.put(size, queue);
+        }
+        return queue;
+    }
+
+    // Cancel the queues of every other size
+    private void keepNonogramQueue(int size){
+        Iterator<Map.Entry<Integer, PuzzleGenerationService.PuzzleQueue<NonogramGenerator>>> entries = nonogramQueues.entrySet().iterator();
+        while(entries.hasNext()){
+            Map.Entry<Integer, PuzzleGenerationService.PuzzleQueue<NonogramGenerator>> entry = entries.next();
+            if(entry.getKey() != size){
+                entry.getValue().cancel();
+                entries.remove();
             }
         }
+    }
+
+    public boolean nonogramCheckWin(){
+        // If any spots are not the same, the board keeps count as cells change
+        if(!nonogramAppInterface.getBoard().isSolved()){
+            return false; // Return false = user can keep playing
+        }
         showDialogBox();
         return true;
     }
@@ -293,16 +340,79 @@ public class MainActivity extends AppCompatActivity {
         cryptogram();
     }
     public void cryptogram(){
-        currentScreen = "Cryptogram";
         int SIZE = 9;
-        // Create new game and interface
-        cryptogram = new Cryptogram();
+        // Take a ready game and create the interface
+        Cryptogram ready = cryptogramQueue.take();
+        if(ready == null){
+            notReady();
+            return;
+        }
+        currentScreen = "Cryptogram";
+        cryptogram = ready;
         cryptogramInterface = new CryptogramInterface(this, cryptogram.getNumbers(), cryptogram.getCurrentNumbers(), cryptogram.getQuote(), cryptogram.getPerson());
 
         // Set content view
         setContentView(cryptogramInterface);
     }
 
+    // Draw quotes until one the solver can crack, so every puzzle can be worked out
+    // from its letter patterns. Gives up after a few draws and keeps the last one.
+    // Quotes rated when the corpus was built aren't solved again.
+    private static final int CRYPTOGRAM_DRAWS = 10;
+    private static final int CRYPTOGRAM_MAX_LETTERS = 100; // Longer quotes don't fit the screen
+
+    private Cryptogram solvableCryptogram() throws IOException {
+        CryptogramSolver solver = new CryptogramSolver(quadgramTable());
+        QuoteCorpus corpus = quoteCorpus();
+        Random random = new Random();
+        Cryptogram candidate = null;
+        for(int draw = 0; draw < CRYPTOGRAM_DRAWS; draw++){
+            int index = corpus.pick(random, CryptogramSolver.MIN_LETTERS, CRYPTOGRAM_MAX_LETTERS, 0, 26);
+            if(index < 0){
+                index = corpus.pick(random);
+            }
+            candidate = new Cryptogram(corpus, index);
+            int rating = corpus.getRating(index);
+            if(rating >= 0 ? rating >= CryptogramSolver.SOLVABLE_FRACTION * 100 : solver.isSolvable(candidate)){
+                break;
+            }
+        }
+        return candidate;
+    }
+
+    // The quote corpus is mapped from a copy in app storage, as raw resources can be
+    // compressed inside the APK. The copy is redone when the app has been updated.
+    private synchronized QuoteCorpus quoteCorpus() throws IOException {
+        if(quoteCorpus == null){
+            File file = new File(getFilesDir(), "quotes.bin");
+            if(!file.exists() || file.lastModified() < new File(getApplicationInfo().sourceDir).lastModified()){
+                File temp = new File(getFilesDir(), "quotes.bin.tmp");
+                try(InputStream in = getResources().openRawResource(R.raw.quotes);
+                    OutputStream out = new FileOutputStream(temp)){
+                    byte[] buffer = new byte[8192];
+                    int read;
+                    while((read = in.read(buffer)) != -1){
+                        out.write(buffer, 0, read);
+                    }
+                }
+                if(!temp.renameTo(file)){
+                    throw new IOException("Could not write " + file);
+                }
+            }
+            quoteCorpus = QuoteCorpus.map(file);
+        }
+        return quoteCorpus;
+    }
+
+    private synchronized QuadgramTable quadgramTable() throws IOException {
+        if(quadgrams == null){
+            try(InputStream in = getResources().openRawResource(R.raw.quadgrams)){
+                quadgrams = QuadgramTable.load(in);
+            }
+        }
+        return quadgrams;
+    }
+
     public void cryptogramOnWin(){
         showDialogBox();
     }
@@ -322,6 +432,11 @@ public class MainActivity extends AppCompatActivity {
         dialogBox.show();
     }
 
+    // No puzzle came out of the queue in time, the player stays where they are
+    private void notReady(){
+        Toast.makeText(this, "Still making puzzles, try again in a moment", Toast.LENGTH_SHORT).show();
+    }
+
     private class DialogBoxListener implements DialogInterface.OnClickListener{
 
         @Override
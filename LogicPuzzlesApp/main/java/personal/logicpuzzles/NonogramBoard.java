@@ -0,0 +1,74 @@
+package personal.logicpuzzles;
+
+// The player's grid next to the solution, with running counts of the cells that
+// differ overall and in each row and column. Every change updates the counts in
+// constant time, so checking for a win or a finished line never rescans the grid.
+public class NonogramBoard {
+
+    private final NonogramGrid goal;
+    private final NonogramGrid player;
+    private final int[] rowMismatches;
+    private final int[] columnMismatches;
+    private int mismatches;
+
+    public NonogramBoard(NonogramGrid goal) {
+        this.goal = goal;
+        int size = goal.getSize();
+        player = new NonogramGrid(size);
+        rowMismatches = new int[size];
+        columnMismatches = new int[size];
+
+        // The player starts with nothing filled, so every filled goal cell is a mismatch
+        for (int i = 0; i < size; i++) {
+            for (int w = 0; w < goal.getWordsPerLine(); w++) {
+                rowMismatches[i] += Long.bitCount(goal.rowWord(i, w));
+                columnMismatches[i] += Long.bitCount(goal.columnWord(i, w));
+            }
+            mismatches += rowMismatches[i];
+        }
+    }
+
+    public boolean isFilled(int row, int col) {
+        return player.get(row, col);
+    }
+
+    public void set(int row, int col, boolean filled) {
+        if (player.get(row, col) != filled) {
+            toggle(row, col);
+        }
+    }
+
+    public void toggle(int row, int col) {
+        player.toggle(row, col);
+        int change = player.get(row, col) == goal.get(row, col) ? -1 : 1;
+        rowMismatches[row] += change;
+        columnMismatches[col] += change;
+        mismatches += change;
+    }
+
+    // Every cell matches the solution
+    public boolean isSolved() {
+        return mismatches == 0;
+    }
+
+    public int getMismatches() {
+        return mismatches;
+    }
+
+    // The row matches the solution, so its clue is done
+    public boolean isRowSatisfied(int row) {
+        return rowMismatches[row] == 0;
+    }
+
+    public boolean isColumnSatisfied(int col) {
+        return columnMismatches[col] == 0;
+    }
+
+    public NonogramGrid getPlayerGrid() {
+        return player;
+    }
+
+    public NonogramGrid getGoalGrid() {
+        return goal;
+    }
+}
@@ -0,0 +1,48 @@
+package personal.logicpuzzles;
+
+// The clues of every row, or every column, of a nonogram in two flat arrays:
+// the run lengths of line i are runs[offsets[i]] up to runs[offsets[i + 1]].
+public class NonogramClues {
+
+    private final int lineCount;
+    private final int[] runs;
+    private final int[] offsets; // lineCount + 1 entries
+
+    public NonogramClues(int[] runs, int[] offsets) {
+        this.runs = runs;
+        this.offsets = offsets;
+        lineCount = offsets.length - 1;
+    }
+
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    // Number of runs in a line
+    public int count(int line) {
+        return offsets[line + 1] - offsets[line];
+    }
+
+    // Length of run k of a line
+    public int get(int line, int k) {
+        return runs[offsets[line] + k];
+    }
+
+    // Most runs in any line
+    public int maxCount() {
+        int max = 0;
+        for (int line = 0; line < lineCount; line++) {
+            max = Math.max(max, count(line));
+        }
+        return max;
+    }
+
+    // Backing arrays, for code that walks many lines at once; not to be modified
+    public int[] getRuns() {
+        return runs;
+    }
+
+    public int[] getOffsets() {
+        return offsets;
+    }
+}
@@ -1,104 +1,206 @@
 package personal.logicpuzzles;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Random;
 
 public class NonogramGenerator {
 
     private int size; // Size of the grid
-    private int[][] grid; // The nonogram grid (0 for empty, 1 for filled)
+    private NonogramGrid grid; // The nonogram grid, a set bit is a filled cell
+    private Random rand;
+
+    // Changes made to one pattern while looking for a unique one before starting over
+    private static final int MAX_FLIPS = 80;
+
+    // Chance of a cell being filled. Denser patterns have longer runs and are easier.
+    private static final double DEFAULT_DENSITY = 0.70;
+    private double density = DEFAULT_DENSITY;
+
+    // Patterns tried while looking for a difficulty, and how much density changes between
+    // them. Below MIN_DENSITY patterns take far longer to make unique than they gain in
+    // hard puzzles, so hard ones are found by trying more patterns instead.
+    private static final int GRADE_ATTEMPTS = 100;
+    private static final long GRADE_NANOS = 1_000_000_000L;
+    private static final double DENSITY_STEP = 0.05;
+    private static final double MIN_DENSITY = 0.50;
+    private static final double MAX_DENSITY = 0.90;
 
     // Constructor to initialize the grid size
     public NonogramGenerator(int size) {
+        this(size, new Random(), false);
+    }
+
+    // Unique = only accept patterns whose clues have exactly one solution
+    public NonogramGenerator(int size, boolean unique) {
+        this(size, new Random(), unique);
+    }
+
+    // Same seed gives the same pattern
+    public NonogramGenerator(int size, long seed) {
+        this(size, new Random(seed), false);
+    }
+
+    public NonogramGenerator(int size, long seed, boolean unique) {
+        this(size, new Random(seed), unique);
+    }
+
+    // A unique pattern of the given difficulty, or the closest one found
+    public NonogramGenerator(int size, NonogramGrader.Difficulty difficulty) {
+        this(size, new Random(), difficulty);
+    }
+
+    public NonogramGenerator(int size, long seed, NonogramGrader.Difficulty difficulty) {
+        this(size, new Random(seed), difficulty);
+    }
+
+    private NonogramGenerator(int size, Random rand, NonogramGrader.Difficulty difficulty) {
         this.size = size;
-        this.grid = new int[size][size]; // Initialize the grid with the given size
-        generatePattern();
+        this.rand = rand;
+        generatePattern(difficulty);
+    }
+
+    private NonogramGenerator(int size, Random rand, boolean unique) {
+        this.size = size;
+        this.rand = rand;
+        this.grid = new NonogramGrid(size); // Initialize the grid with the given size
+        if (unique) {
+            generateUniquePattern();
+        } else {
+            generatePattern();
+        }
     }
 
     // Generate a random nonogram pattern
     public void generatePattern() {
-        Random rand = new Random();
-
-        // Set the threshold for getting a 1 (70% chance)
-        double probability = 0.70;
-
         // Randomly fill the grid
-        for (int i = 0; i < grid.length; i++) {
-            for (int j = 0; j < grid[i].length; j++) {
-                grid[i][j] = rand.nextDouble() < probability ? 1 : 0;
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                grid.set(i, j, rand.nextDouble() < density);
             }
         }
     }
 
-    // Get the nonogram grid
-    public int[][] getGrid() {
-        return grid;
+    // Generate unique patterns, making them sparser while they grade too easy and denser
+    // while they grade too hard, until one has the difficulty asked for
+    public void generatePattern(NonogramGrader.Difficulty difficulty) {
+        NonogramGrader grader = new NonogramGrader(size);
+        density = difficulty == NonogramGrader.Difficulty.EASY ? 0.75
+                : difficulty == NonogramGrader.Difficulty.MEDIUM ? 0.60 : 0.55;
+
+        NonogramGrid closest = null;
+        int closestDistance = Integer.MAX_VALUE;
+        long deadline = System.nanoTime() + GRADE_NANOS;
+        for (int attempt = 0; attempt < GRADE_ATTEMPTS; attempt++) {
+            grid = new NonogramGrid(size);
+            // Once there is a pattern to fall back on, one that is slow to make unique is
+            // dropped at the deadline
+            if (!generateUniquePattern(closest == null ? 0 : deadline)) {
+                break;
+            }
+            int difference = grader.grade(this).getDifficulty().ordinal() - difficulty.ordinal();
+            if (difference == 0) {
+                return;
+            }
+            if (Math.abs(difference) < closestDistance) {
+                closest = grid;
+                closestDistance = Math.abs(difference);
+            }
+            density = Math.max(MIN_DENSITY, Math.min(MAX_DENSITY, density + difference * DENSITY_STEP));
+            if (System.nanoTime() - deadline > 0) {
+                break;
+            }
+        }
+        grid = closest;
     }
 
-    // Get row clues
-    public List<List<Integer>> getColumnClues() {
-        List<List<Integer>> rowClues = new ArrayList<>();
-        for (int i = 0; i < grid.length; i++) {
-            rowClues.add(getCluesForLine(grid[i]));
-        }
-        return rowClues;
+    public double getDensity() {
+        return density;
+    }
+
+    // Generate a random pattern, then flip cells the solver cannot decide until the clues
+    // have exactly one solution, so the hidden grid is the only way to win
+    public void generateUniquePattern() {
+        generateUniquePattern(0);
     }
 
-    // Get column clues
-    public List<List<Integer>> getRowClues() {
-        List<List<Integer>> columnClues = new ArrayList<>();
-        for (int j = 0; j < grid.length; j++) {
-            int[] column = new int[grid.length];
-            for (int i = 0; i < grid.length; i++) {
-                column[i] = grid[i][j];
+    // As above, but give up and return false once System.nanoTime() passes deadline, 0 for none
+    private boolean generateUniquePattern(long deadline) {
+        NonogramSolver solver = new NonogramSolver(size);
+        generatePattern();
+        int flips = 0;
+        while (solver.countSolutions(this, 2) != 1) {
+            if (deadline != 0 && System.nanoTime() - deadline > 0) {
+                return false;
             }
-            columnClues.add(getCluesForLine(column));
-        }
-        return columnClues;
-    }
-
-    // Get clues for a single row or column
-    private List<Integer> getCluesForLine(int[] line) {
-        List<Integer> clues = new ArrayList<>();
-        int count = 0;
-
-        for (int i = 0; i < line.length; i++) {
-            int cell = line[i];
-            if (cell == 1) {
-                count++;
-            } else {
-                if (count > 0) {
-                    clues.add(count);
-                    count = 0;
+            if (++flips > MAX_FLIPS) {
+                // Stuck, start again from a fresh pattern
+                generatePattern();
+                flips = 0;
+                continue;
+            }
+
+            // The solver is left with the cells line solving decided, pick one it did not
+            int open = 0;
+            for (int i = 0; i < size; i++) {
+                for (int j = 0; j < size; j++) {
+                    if (solver.getCell(i, j) == NonogramSolver.UNKNOWN) {
+                        open++;
+                    }
+                }
+            }
+            int pick = rand.nextInt(open);
+            for (int i = 0; i < size && pick >= 0; i++) {
+                for (int j = 0; j < size && pick >= 0; j++) {
+                    if (solver.getCell(i, j) == NonogramSolver.UNKNOWN && pick-- == 0) {
+                        grid.toggle(i, j);
+                    }
                 }
             }
         }
+        return true;
+    }
 
-        if (count > 0) {
-            clues.add(count);
-        }
+    // Get the nonogram grid
+    public NonogramGrid getGrid() {
+        return grid;
+    }
 
-        return clues;
+    // Get row clues, shown left of the grid
+    public NonogramClues getColumnClues() {
+        return grid.rowClues();
+    }
+
+    // Get column clues, shown above the grid
+    public NonogramClues getRowClues() {
+        return grid.columnClues();
     }
 
     public static void main(String[] args) {
         NonogramGenerator generator = new NonogramGenerator(10);
-        int[][] grid = generator.getGrid();
+        NonogramGrid grid = generator.getGrid();
 
         // Print grid
-        for (int[] row : grid) {
-            for (int cell : row) {
-                System.out.print(cell == 1 ? "█" : " ");
+        for (int i = 0; i < grid.getSize(); i++) {
+            for (int j = 0; j < grid.getSize(); j++) {
+                System.out.print(grid.get(i, j) ? "█" : " ");
             }
             System.out.println();
         }
 
         // Print clues
         System.out.println("Row Clues:");
-        generator.getRowClues().forEach(System.out::println);
+        printClues(generator.getRowClues());
 
         System.out.println("Column Clues:");
-        generator.getColumnClues().forEach(System.out::println);
+        printClues(generator.getColumnClues());
+    }
+
+    private static void printClues(NonogramClues clues) {
+        for (int line = 0; line < clues.getLineCount(); line++) {
+            StringBuilder sb = new StringBuilder("[");
+            for (int k = 0; k < clues.count(line); k++) {
+                sb.append(k > 0 ? ", " : "").append(clues.get(line, k));
+            }
+            System.out.println(sb.append(']'));
+        }
     }
 }
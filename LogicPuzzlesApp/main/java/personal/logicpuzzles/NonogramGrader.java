@@ -0,0 +1,97 @@
+package personal.logicpuzzles;
+
+// Grades a nonogram by how hard the line solver has to work on its clues: how many
+// passes over the lines it takes, and whether it then has to guess and how deep.
+// One grader is reused for any number of puzzles of its size, and grading into an
+// existing Grade allocates nothing, so candidates can be screened in bulk.
+public class NonogramGrader {
+
+    public enum Difficulty {
+        EASY,   // Line solving settles it in a few passes
+        MEDIUM, // Line solving alone, but it takes many passes
+        HARD    // Needs guessing, or isn't unique
+    }
+
+    // Most passes an easy puzzle may take
+    private static final int EASY_PASSES = 4;
+
+    // Score added for each guess and each level of guesses stacked on each other
+    private static final int GUESS_WEIGHT = 5;
+    private static final int DEPTH_WEIGHT = 10;
+    // Added when the solver gives up or the clues have more than one solution
+    private static final int UNSOLVED_PENALTY = 100;
+
+    public static class Grade {
+        private int passes;
+        private int lineSolves;
+        private int guesses;
+        private int depth;
+        private int solutions;
+        private boolean gaveUp;
+
+        // Passes over the lines before line solving gets stuck or finishes
+        public int getPasses() {
+            return passes;
+        }
+
+        public int getLineSolves() {
+            return lineSolves;
+        }
+
+        public int getGuesses() {
+            return guesses;
+        }
+
+        public int getDepth() {
+            return depth;
+        }
+
+        // Exactly one solution, proven within the guess limit
+        public boolean isUnique() {
+            return solutions == 1 && !gaveUp;
+        }
+
+        public int getScore() {
+            int score = passes + guesses * GUESS_WEIGHT + depth * DEPTH_WEIGHT;
+            return isUnique() ? score : score + UNSOLVED_PENALTY;
+        }
+
+        public Difficulty getDifficulty() {
+            if (!isUnique() || guesses > 0) {
+                return Difficulty.HARD;
+            }
+            return passes <= EASY_PASSES ? Difficulty.EASY : Difficulty.MEDIUM;
+        }
+    }
+
+    private final NonogramSolver solver;
+
+    public NonogramGrader(int size) {
+        solver = new NonogramSolver(size);
+    }
+
+    // Give up on puzzles that need more than guessLimit guesses, for fast screening
+    public NonogramGrader(int size, int guessLimit) {
+        this(size);
+        solver.setNodeLimit(guessLimit);
+    }
+
+    public Grade grade(NonogramGenerator generator) {
+        return grade(generator.getColumnClues(), generator.getRowClues(), new Grade());
+    }
+
+    public Grade grade(NonogramClues rowRuns, NonogramClues columnRuns) {
+        return grade(rowRuns, columnRuns, new Grade());
+    }
+
+    // Grade into an existing Grade and return it
+    public Grade grade(NonogramClues rowRuns, NonogramClues columnRuns, Grade grade) {
+        grade.solutions = solver.countSolutions(rowRuns, columnRuns, 2);
+        grade.passes = solver.getPasses();
+        grade.lineSolves = solver.getLineSolves();
+        grade.guesses = solver.getGuesses();
+        grade.depth = solver.getMaxDepth();
+        grade.gaveUp = grade.guesses > solver.getNodeLimit();
+        return grade;
+    }
+}
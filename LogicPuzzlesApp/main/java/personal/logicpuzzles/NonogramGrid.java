@@ -0,0 +1,128 @@
+package personal.logicpuzzles;
+
+// Square grid of filled/empty cells packed into longs, one bit per cell.
+// Every cell is stored twice, by row and by column, so both kinds of line
+// can be read a word at a time.
+public class NonogramGrid {
+
+    public static final int MAX_SIZE = 100;
+
+    private final int size;
+    private final int words; // Longs per line
+    private final long[] rows; // Bit c of rows[r * words + c / 64] is cell (r, c)
+    private final long[] cols; // Bit r of cols[c * words + r / 64] is cell (r, c)
+
+    public NonogramGrid(int size) {
+        if (size < 1 || size > MAX_SIZE) {
+            throw new IllegalArgumentException("Nonogram size must be 1 to " + MAX_SIZE + ", was " + size);
+        }
+        this.size = size;
+        words = (size + 63) >>> 6;
+        rows = new long[size * words];
+        cols = new long[size * words];
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public boolean get(int row, int col) {
+        return (rows[row * words + (col >>> 6)] & (1L << col)) != 0;
+    }
+
+    public void set(int row, int col, boolean filled) {
+        if (filled != get(row, col)) {
+            toggle(row, col);
+        }
+    }
+
+    public void toggle(int row, int col) {
+        rows[row * words + (col >>> 6)] ^= 1L << col;
+        cols[col * words + (row >>> 6)] ^= 1L << row;
+    }
+
+    public void clear() {
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = cols[i] = 0;
+        }
+    }
+
+    public int getWordsPerLine() {
+        return words;
+    }
+
+    // Word w of a row, bit i is column 64 * w + i
+    public long rowWord(int row, int w) {
+        return rows[row * words + w];
+    }
+
+    // Word w of a column, bit i is row 64 * w + i
+    public long columnWord(int col, int w) {
+        return cols[col * words + w];
+    }
+
+    // Runs of filled cells in each row, left to right
+    public NonogramClues rowClues() {
+        return clues(rows);
+    }
+
+    // Runs of filled cells in each column, top to bottom
+    public NonogramClues columnClues() {
+        return clues(cols);
+    }
+
+    public int filledCount() {
+        int count = 0;
+        for (long word : rows) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    // Number of cells that differ from another grid of the same size
+    public int mismatches(NonogramGrid other) {
+        int count = 0;
+        for (int i = 0; i < rows.length; i++) {
+            count += Long.bitCount(rows[i] ^ other.rows[i]);
+        }
+        return count;
+    }
+
+    // One pass over all lines, jumping over whole runs of ones and zeros and carrying a
+    // run across words. The run array is sized for the most runs a grid can have, so
+    // the clues take three objects whatever the size.
+    private NonogramClues clues(long[] bits) {
+        int[] runs = new int[size * ((size + 1) / 2)];
+        int[] offsets = new int[size + 1];
+        int count = 0;
+        for (int line = 0; line < size; line++) {
+            offsets[line] = count;
+            int run = 0;
+            for (int w = 0; w < words; w++) {
+                int limit = Math.min(64, size - 64 * w);
+                long word = bits[line * words + w];
+                int pos = 0;
+                while (pos < limit) {
+                    long rest = word >>> pos;
+                    if ((rest & 1) == 0) {
+                        // A gap ends the open run
+                        if (run > 0) {
+                            runs[count++] = run;
+                            run = 0;
+                        }
+                        pos += Math.min(Long.numberOfTrailingZeros(rest), limit - pos);
+                    } else {
+                        int ones = Long.numberOfTrailingZeros(~rest);
+                        run += ones;
+                        pos += ones;
+                    }
+                }
+            }
+            if (run > 0) {
+                runs[count++] = run;
+            }
+        }
+        offsets[size] = count;
+        return new NonogramClues(runs, offsets);
+    }
+}
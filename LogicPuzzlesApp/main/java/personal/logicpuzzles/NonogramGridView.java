@@ -0,0 +1,319 @@
+package personal.logicpuzzles;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.view.MotionEvent;
+import android.view.ScaleGestureDetector;
+import android.view.View;
+
+// The whole nonogram, grid and clues, drawn on one canvas from the bitset model.
+// Touching a cell fills or crosses it and dragging carries the same change along
+// the row or column. Pinching zooms and moves the grid; the clues stay pinned to
+// the top and left edges and follow it. Only the visible cells are drawn.
+public class NonogramGridView extends View {
+
+    // Called after the player changes any cell
+    public interface OnBoardChangedListener {
+        void onBoardChanged();
+    }
+
+    private static final float CLUE_SLOT = 0.6f; // Clue spacing across a line, in cells at normal zoom
+    private static final float MAX_SCALE = 6f;
+
+    private final NonogramBoard board;
+    private final NonogramGrid crosses; // Cells the player marked with an X
+    private final NonogramClues rowClues;
+    private final NonogramClues columnClues;
+    private final int size;
+    private final int maxRowClues;
+    private final int maxColumnClues;
+    private OnBoardChangedListener listener;
+    private boolean crossMode; // Touches place X marks instead of filling
+
+    // Layout, recomputed when the view changes size
+    private float baseCell; // Cell size at normal zoom
+    private float slot;     // Space for one clue in the gutters
+    private float gridLeft, gridTop;
+
+    // Zoom and pan of the grid, offsets are from the grid's top left corner
+    private float scale = 1f;
+    private float offsetX, offsetY;
+    private final ScaleGestureDetector scaleDetector;
+    private float lastFocusX, lastFocusY;
+
+    // The drag in progress: what it sets cells to, where it started and the line it is locked to
+    private boolean dragging;
+    private boolean dragValue;
+    private int startRow, startCol, lastRow, lastCol;
+    private int dragAxis; // 0 = not locked yet, 1 = along the row, 2 = along the column
+
+    private final Paint emptyPaint = new Paint();
+    private final Paint filledPaint = new Paint();
+    private final Paint linePaint = new Paint();
+    private final Paint thickLinePaint = new Paint();
+    private final Paint crossPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint cluePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint doneCluePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final float maxTextSize;
+
+    public NonogramGridView(Context context, NonogramBoard board, NonogramClues rowClues, NonogramClues columnClues) {
+        super(context);
+        this.board = board;
+        this.rowClues = rowClues;
+        this.columnClues = columnClues;
+        size = board.getGoalGrid().getSize();
+        crosses = new NonogramGrid(size);
+        maxRowClues = Math.max(1, rowClues.maxCount());
+        maxColumnClues = Math.max(1, columnClues.maxCount());
+
+        emptyPaint.setColor(Color.parseColor("#AFAFDC"));
+        filledPaint.setColor(Color.parseColor("#8A84E2"));
+        linePaint.setColor(Color.WHITE);
+        linePaint.setStrokeWidth(1);
+        thickLinePaint.setColor(Color.WHITE);
+        thickLinePaint.setStrokeWidth(4);
+        crossPaint.setColor(Color.DKGRAY);
+        cluePaint.setColor(Color.BLACK);
+        cluePaint.setTextAlign(Paint.Align.CENTER);
+        doneCluePaint.setColor(Color.LTGRAY);
+        doneCluePaint.setTextAlign(Paint.Align.CENTER);
+        maxTextSize = 20 * getResources().getDisplayMetrics().scaledDensity;
+
+        scaleDetector = new ScaleGestureDetector(context, new ScaleGestureDetector.SimpleOnScaleGestureListener() {
+            @Override
+            public boolean onScaleBegin(ScaleGestureDetector detector) {
+                // A second finger turns the touch into a zoom, keep what was already drawn
+                dragging = false;
+                lastFocusX = detector.getFocusX();
+                lastFocusY = detector.getFocusY();
+                return true;
+            }
+
+            @Override
+            public boolean onScale(ScaleGestureDetector detector) {
+                float newScale = Math.max(1f, Math.min(MAX_SCALE, scale * detector.getScaleFactor()));
+                float focusX = detector.getFocusX() - gridLeft;
+                float focusY = detector.getFocusY() - gridTop;
+                // Keep the point under the fingers in place, then follow the fingers moving
+                offsetX = focusX - (focusX - offsetX) * newScale / scale + detector.getFocusX() - lastFocusX;
+                offsetY = focusY - (focusY - offsetY) * newScale / scale + detector.getFocusY() - lastFocusY;
+                scale = newScale;
+                lastFocusX = detector.getFocusX();
+                lastFocusY = detector.getFocusY();
+                clampOffsets();
+                invalidate();
+                return true;
+            }
+        });
+    }
+
+    public void setOnBoardChangedListener(OnBoardChangedListener listener) {
+        this.listener = listener;
+    }
+
+    public void setCrossMode(boolean crossMode) {
+        this.crossMode = crossMode;
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        // Fit the grid and both clue gutters
+        baseCell = Math.min(w / (size + CLUE_SLOT * maxRowClues), h / (size + CLUE_SLOT * maxColumnClues));
+        slot = CLUE_SLOT * baseCell;
+        gridLeft = slot * maxRowClues;
+        gridTop = slot * maxColumnClues;
+        clampOffsets();
+    }
+
+    // Keep the zoomed grid covering its area
+    private void clampOffsets() {
+        float extra = size * baseCell * (scale - 1);
+        offsetX = Math.max(-extra, Math.min(0, offsetX));
+        offsetY = Math.max(-extra, Math.min(0, offsetY));
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        float cell = baseCell * scale;
+        float gridSize = size * baseCell; // Area the grid is shown in, whatever the zoom
+
+        // Cells that show through the grid area
+        int firstCol = Math.max(0, (int) (-offsetX / cell));
+        int lastCol = Math.min(size - 1, (int) ((gridSize - offsetX) / cell));
+        int firstRow = Math.max(0, (int) (-offsetY / cell));
+        int lastRow = Math.min(size - 1, (int) ((gridSize - offsetY) / cell));
+
+        canvas.save();
+        canvas.clipRect(gridLeft, gridTop, gridLeft + gridSize, gridTop + gridSize);
+        canvas.drawRect(gridLeft, gridTop, gridLeft + gridSize, gridTop + gridSize, emptyPaint);
+        for (int r = firstRow; r <= lastRow; r++) {
+            float top = gridTop + offsetY + r * cell;
+            for (int c = firstCol; c <= lastCol; c++) {
+                float left = gridLeft + offsetX + c * cell;
+                if (board.isFilled(r, c)) {
+                    canvas.drawRect(left, top, left + cell, top + cell, filledPaint);
+                } else if (crosses.get(r, c)) {
+                    float inset = cell * 0.25f;
+                    crossPaint.setStrokeWidth(Math.max(1, cell * 0.08f));
+                    canvas.drawLine(left + inset, top + inset, left + cell - inset, top + cell - inset, crossPaint);
+                    canvas.drawLine(left + cell - inset, top + inset, left + inset, top + cell - inset, crossPaint);
+                }
+            }
+        }
+
+        // Grid lines, thicker every five cells
+        for (int i = firstCol; i <= lastCol + 1; i++) {
+            float x = gridLeft + offsetX + i * cell;
+            canvas.drawLine(x, gridTop, x, gridTop + gridSize, i % 5 == 0 ? thickLinePaint : linePaint);
+        }
+        for (int i = firstRow; i <= lastRow + 1; i++) {
+            float y = gridTop + offsetY + i * cell;
+            canvas.drawLine(gridLeft, y, gridLeft + gridSize, y, i % 5 == 0 ? thickLinePaint : linePaint);
+        }
+        canvas.restore();
+
+        // Clues follow the grid along their line and stay in their gutter across it.
+        // Finished lines are greyed out.
+        float textSize = Math.min(maxTextSize, Math.min(cell, slot) * 0.7f);
+        cluePaint.setTextSize(textSize);
+        doneCluePaint.setTextSize(textSize);
+        float baseline = textSize * 0.35f; // From the middle of a slot to the text baseline
+
+        canvas.save();
+        canvas.clipRect(gridLeft, 0, gridLeft + gridSize, gridTop);
+        for (int c = firstCol; c <= lastCol; c++) {
+            Paint paint = board.isColumnSatisfied(c) ? doneCluePaint : cluePaint;
+            float x = gridLeft + offsetX + (c + 0.5f) * cell;
+            int count = columnClues.count(c);
+            for (int k = 0; k < count; k++) {
+                float y = gridTop - (count - k - 0.5f) * slot + baseline;
+                canvas.drawText(Integer.toString(columnClues.get(c, k)), x, y, paint);
+            }
+        }
+        canvas.restore();
+
+        canvas.save();
+        canvas.clipRect(0, gridTop, gridLeft, gridTop + gridSize);
+        for (int r = firstRow; r <= lastRow; r++) {
+            Paint paint = board.isRowSatisfied(r) ? doneCluePaint : cluePaint;
+            float y = gridTop + offsetY + (r + 0.5f) * cell + baseline;
+            int count = rowClues.count(r);
+            for (int k = 0; k < count; k++) {
+                float x = gridLeft - (count - k - 0.5f) * slot;
+                canvas.drawText(Integer.toString(rowClues.get(r, k)), x, y, paint);
+            }
+        }
+        canvas.restore();
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        if (!isEnabled()) {
+            return false;
+        }
+        scaleDetector.onTouchEvent(event);
+        if (scaleDetector.isInProgress() || event.getPointerCount() > 1) {
+            return true;
+        }
+
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN: {
+                int row = rowAt(event.getY());
+                int col = colAt(event.getX());
+                if (row < 0 || col < 0) {
+                    return true;
+                }
+                // The first cell decides whether the drag sets or clears
+                dragValue = crossMode ? !crosses.get(row, col) : !board.isFilled(row, col);
+                dragging = true;
+                dragAxis = 0;
+                startRow = lastRow = row;
+                startCol = lastCol = col;
+                apply(row, col);
+                return true;
+            }
+            case MotionEvent.ACTION_MOVE: {
+                if (!dragging) {
+                    return true;
+                }
+                int row = clamp(rowAt(event.getY(), true));
+                int col = clamp(colAt(event.getX(), true));
+                if (dragAxis == 0 && (row != startRow || col != startCol)) {
+                    dragAxis = row == startRow ? 1 : 2;
+                }
+                // Stay on the starting line and fill every cell passed over
+                if (dragAxis == 1) {
+                    row = startRow;
+                } else if (dragAxis == 2) {
+                    col = startCol;
+                }
+                while (lastRow != row || lastCol != col) {
+                    lastRow += Integer.signum(row - lastRow);
+                    lastCol += Integer.signum(col - lastCol);
+                    apply(lastRow, lastCol);
+                }
+                return true;
+            }
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_CANCEL:
+                dragging = false;
+                return true;
+            default:
+                return true;
+        }
+    }
+
+    // Set one cell to the drag's value, filled cells are never crossed and crossed cells never filled
+    private void apply(int row, int col) {
+        if (!isEnabled()) {
+            return; // Won partway through a drag
+        }
+        if (crossMode) {
+            if (board.isFilled(row, col) || crosses.get(row, col) == dragValue) {
+                return;
+            }
+            crosses.set(row, col, dragValue);
+        } else {
+            if (crosses.get(row, col) || board.isFilled(row, col) == dragValue) {
+                return;
+            }
+            board.set(row, col, dragValue);
+        }
+        invalidate();
+        if (listener != null) {
+            listener.onBoardChanged();
+        }
+    }
+
+    private int rowAt(float y) {
+        return rowAt(y, false);
+    }
+
+    // Cell under a point, -1 outside the grid unless outside is allowed
+    private int rowAt(float y, boolean outside) {
+        return cellAt(y - gridTop - offsetY, y - gridTop, outside);
+    }
+
+    private int colAt(float x) {
+        return colAt(x, false);
+    }
+
+    private int colAt(float x, boolean outside) {
+        return cellAt(x - gridLeft - offsetX, x - gridLeft, outside);
+    }
+
+    private int cellAt(float content, float screen, boolean outside) {
+        if (!outside && (screen < 0 || screen >= size * baseCell)) {
+            return -1;
+        }
+        return (int) Math.floor(content / (baseCell * scale));
+    }
+
+    private int clamp(int index) {
+        return Math.max(0, Math.min(size - 1, index));
+    }
+}
@@ -0,0 +1,642 @@
+package personal.logicpuzzles;
+
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Solves a nonogram from its clues one line at a time, the way a person would.
+// Each row and column is kept as packed bits, one set for cells known to be filled
+// and one for cells known to be empty. A placement DP finds the cells every
+// arrangement of a line agrees on, and any change queues the crossing lines again
+// until nothing changes. Puzzles that need guessing are left partly unknown.
+// For very large grids the lines can instead be solved in phases, all changed rows
+// at once and then all changed columns, spread over the fork-join pool.
+public class NonogramSolver {
+
+    // Cell states, matching the 0/1 grid of NonogramGenerator
+    public static final int UNKNOWN = -1;
+    public static final int EMPTY = 0;
+    public static final int FILLED = 1;
+
+    private final int size;
+    private final int words; // Longs per line
+
+    // Known cells by row, bit c of row r, and the same bits again by column
+    private final long[] rowFilled;
+    private final long[] rowEmpty;
+    private final long[] colFilled;
+    private final long[] colEmpty;
+    private int unknown; // Cells not yet known
+
+    // Clues of the rows and the columns being solved
+    private NonogramClues rowClues;
+    private NonogramClues columnClues;
+    private final int maxRuns;
+
+    // Lines waiting to be solved again, rows first then columns
+    private final int[] queue;
+    private final boolean[] queued;
+    private int head;
+    private int queuedCount;
+
+    // Guesses a count may make before giving up, and the guesses made so far
+    private static final int NODE_LIMIT = 2000;
+    private int nodeLimit = NODE_LIMIT;
+    private int nodes;
+    private int maxDepth; // Most guesses stacked on each other
+
+    // Effort of the last solve: passes over the queue before any guess, where a pass
+    // is every line queued by the one before it, and lines solved in total
+    private int passes;
+    private int passLeft; // Lines of the current pass still queued
+    private int lineSolves;
+
+    // Known cells and unknown count saved at each guess depth
+    private long[][] saved = new long[0][];
+    private int[] savedUnknown = new int[0];
+
+    // Scratch for one line, and one more for each thread solving lines of a phase
+    private final LineScratch scratch;
+    private final ThreadLocal<LineScratch> threadScratch;
+
+    // Phased solving: the lines of the current phase, what each of them learned
+    // in its own layout, and whether any of them hit a contradiction
+    private static final int PARALLEL_LINES = 16; // Fewer lines than this are solved on the calling thread
+    private boolean parallel;
+    private final int[] phaseLines;
+    private final long[] learnedFilled; // Rows then columns, words longs each
+    private final long[] learnedEmpty;
+    private volatile boolean contradiction;
+
+    private static class LineScratch {
+        final int[] line;
+        final int[] emptyBefore; // Known empty cells in [0, i)
+        final boolean[] forward;  // forward[j * (size + 1) + i]: runs 0..j-1 fit in [0, i)
+        final boolean[] backward; // backward[j * (size + 1) + i]: runs j.. fit in [i, size)
+        final int[] cover;        // Difference array of cells some run can cover
+        final boolean[] canEmpty;
+
+        LineScratch(int size, int maxRuns) {
+            line = new int[size];
+            emptyBefore = new int[size + 1];
+            forward = new boolean[(maxRuns + 1) * (size + 1)];
+            backward = new boolean[(maxRuns + 1) * (size + 1)];
+            cover = new int[size + 1];
+            canEmpty = new boolean[size];
+        }
+    }
+
+    public NonogramSolver(int size) {
+        this.size = size;
+        words = (size + 63) >>> 6;
+        rowFilled = new long[size * words];
+        rowEmpty = new long[size * words];
+        colFilled = new long[size * words];
+        colEmpty = new long[size * words];
+
+        queue = new int[2 * size];
+        queued = new boolean[2 * size];
+
+        // At most one run for every two cells
+        maxRuns = (size + 1) / 2;
+        scratch = new LineScratch(size, maxRuns);
+        threadScratch = ThreadLocal.withInitial(() -> new LineScratch(size, maxRuns));
+
+        phaseLines = new int[size];
+        learnedFilled = new long[2 * size * words];
+        learnedEmpty = new long[2 * size * words];
+    }
+
+    // Solve rows and columns in alternating parallel phases instead of one line at a
+    // time. Only pays off on grids beyond about 50x50; the result is the same either way.
+    // Passes then count phases that had lines to solve.
+    public void useParallelPhases(boolean enabled) {
+        parallel = enabled;
+    }
+
+    // Solve a generated puzzle, see solve(rowRuns, columnRuns)
+    public boolean solve(NonogramGenerator generator) {
+        // The generator names its clues after where they are shown: column clues sit
+        // left of the grid and describe the rows, row clues sit above it
+        return solve(generator.getColumnClues(), generator.getRowClues());
+    }
+
+    // Runs of filled cells in each row from top to bottom, and in each column from left
+    // to right. Returns false if the clues contradict each other; otherwise isSolved
+    // tells whether line solving alone determined every cell.
+    public boolean solve(NonogramClues rowRuns, NonogramClues columnRuns) {
+        rowClues = rowRuns;
+        columnClues = columnRuns;
+
+        for (int i = 0; i < size * words; i++) {
+            rowFilled[i] = rowEmpty[i] = colFilled[i] = colEmpty[i] = 0;
+        }
+        unknown = size * size;
+        passes = 0;
+        lineSolves = 0;
+        nodes = 0;
+        maxDepth = 0;
+
+        clearQueue();
+        for (int i = 0; i < 2 * size; i++) {
+            enqueue(i);
+        }
+        return propagate();
+    }
+
+    public int countSolutions(NonogramGenerator generator, int limit) {
+        return countSolutions(generator.getColumnClues(), generator.getRowClues(), limit);
+    }
+
+    // Count solutions up to limit: line solve, then guess an unknown cell each way and
+    // line solve again. A count that needs more guesses than the node limit reports
+    // limit, so a puzzle only counts as unique once that is proven. Afterwards the solver
+    // holds the line solved state of the clues, before any guess.
+    public int countSolutions(NonogramClues rowRuns, NonogramClues columnRuns, int limit) {
+        if (!solve(rowRuns, columnRuns)) {
+            return 0;
+        }
+        if (unknown == 0) {
+            return 1;
+        }
+        int found = count(0, limit);
+        restore(0);
+        return found;
+    }
+
+    public boolean isSolved() {
+        return unknown == 0;
+    }
+
+    public int getPasses() {
+        return passes;
+    }
+
+    public int getLineSolves() {
+        return lineSolves;
+    }
+
+    // Guesses the last count made, more than the node limit if it gave up
+    public int getGuesses() {
+        return nodes;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public int getNodeLimit() {
+        return nodeLimit;
+    }
+
+    // A lower limit gives up sooner on puzzles that need a lot of guessing. At least 1, so
+    // a count always saves the line solved state it restores afterwards.
+    public void setNodeLimit(int nodeLimit) {
+        if (nodeLimit < 1) {
+            throw new IllegalArgumentException("Node limit must be at least 1: " + nodeLimit);
+        }
+        this.nodeLimit = nodeLimit;
+    }
+
+    public int getCell(int row, int col) {
+        int word = row * words + (col >>> 6);
+        long bit = 1L << col;
+        if ((rowFilled[word] & bit) != 0) {
+            return FILLED;
+        }
+        return (rowEmpty[word] & bit) != 0 ? EMPTY : UNKNOWN;
+    }
+
+    // Grid of FILLED, EMPTY and UNKNOWN cells
+    public int[][] getGrid() {
+        int[][] grid = new int[size][size];
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                grid[r][c] = getCell(r, c);
+            }
+        }
+        return grid;
+    }
+
+    private int count(int depth, int limit) {
+        if (unknown == 0) {
+            return 1;
+        }
+        checkCancelled();
+        if (++nodes > nodeLimit) {
+            return limit;
+        }
+
+        maxDepth = Math.max(maxDepth, depth + 1);
+        int cell = firstUnknown();
+        int row = cell / size;
+        int col = cell % size;
+        save(depth);
+        int found = 0;
+        for (int guess = FILLED; guess >= EMPTY && found < limit; guess--) {
+            if (guess == EMPTY) {
+                restore(depth);
+            }
+            set(row, col, guess == FILLED);
+            enqueue(row);
+            enqueue(size + col);
+            if (propagate()) {
+                found += count(depth + 1, limit - found);
+            } else {
+                clearQueue();
+            }
+        }
+        return found;
+    }
+
+    // Row major index of the first cell not yet known
+    private int firstUnknown() {
+        for (int r = 0; r < size; r++) {
+            for (int w = 0; w < words; w++) {
+                long open = ~(rowFilled[r * words + w] | rowEmpty[r * words + w]);
+                if (w == words - 1 && (size & 63) != 0) {
+                    open &= (1L << (size & 63)) - 1;
+                }
+                if (open != 0) {
+                    return r * size + w * 64 + Long.numberOfTrailingZeros(open);
+                }
+            }
+        }
+        return -1;
+    }
+
+    private void save(int depth) {
+        if (depth >= saved.length) {
+            int length = Math.max(8, 2 * saved.length);
+            saved = Arrays.copyOf(saved, length);
+            savedUnknown = Arrays.copyOf(savedUnknown, length);
+        }
+        int n = size * words;
+        if (saved[depth] == null) {
+            saved[depth] = new long[4 * n];
+        }
+        long[] state = saved[depth];
+        System.arraycopy(rowFilled, 0, state, 0, n);
+        System.arraycopy(rowEmpty, 0, state, n, n);
+        System.arraycopy(colFilled, 0, state, 2 * n, n);
+        System.arraycopy(colEmpty, 0, state, 3 * n, n);
+        savedUnknown[depth] = unknown;
+    }
+
+    private void restore(int depth) {
+        int n = size * words;
+        long[] state = saved[depth];
+        System.arraycopy(state, 0, rowFilled, 0, n);
+        System.arraycopy(state, n, rowEmpty, 0, n);
+        System.arraycopy(state, 2 * n, colFilled, 0, n);
+        System.arraycopy(state, 3 * n, colEmpty, 0, n);
+        unknown = savedUnknown[depth];
+    }
+
+    // Solve queued lines until none are left, returns false on a contradiction
+    private boolean propagate() {
+        if (parallel) {
+            return propagatePhases();
+        }
+        while (queuedCount > 0) {
+            checkCancelled();
+            if (passLeft == 0) {
+                // Everything queued now was found by the pass just finished
+                if (nodes == 0) {
+                    passes++;
+                }
+                passLeft = queuedCount;
+            }
+            passLeft--;
+            lineSolves++;
+            int index = queue[head];
+            head = (head + 1) % queue.length;
+            queuedCount--;
+            queued[index] = false;
+            if (!solveLine(index)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Solve every queued row, then every queued column, and so on until a row phase and a
+    // column phase in a row find nothing to do. Each line writes only its own words, in
+    // its own layout, so a phase needs no locking; what it learned is copied across to
+    // the crossing lines afterwards, which queues them for the next phase.
+    private boolean propagatePhases() {
+        // Only the queued flags matter here, not the order lines were queued in
+        head = 0;
+        queuedCount = 0;
+        passLeft = 0;
+
+        int idle = 0;
+        for (boolean rows = true; idle < 2; rows = !rows) {
+            int from = rows ? 0 : size;
+            int count = 0;
+            for (int index = from; index < from + size; index++) {
+                if (queued[index]) {
+                    queued[index] = false;
+                    phaseLines[count++] = index;
+                }
+            }
+            if (count == 0) {
+                idle++;
+                continue;
+            }
+            checkCancelled();
+            idle = 0;
+            if (nodes == 0) {
+                passes++;
+            }
+            lineSolves += count;
+
+            contradiction = false;
+            if (count < PARALLEL_LINES) {
+                solvePhase(scratch, 0, count);
+            } else {
+                ForkJoinPool.commonPool().invoke(new PhaseTask(0, count));
+            }
+            if (contradiction) {
+                return false;
+            }
+            for (int n = 0; n < count; n++) {
+                crossOver(phaseLines[n]);
+            }
+        }
+        return true;
+    }
+
+    // Solve phaseLines[from, to), stopping early once any line has failed
+    private void solvePhase(LineScratch s, int from, int to) {
+        for (int n = from; n < to && !contradiction; n++) {
+            if (!solvePhaseLine(s, phaseLines[n])) {
+                contradiction = true;
+            }
+        }
+    }
+
+    private class PhaseTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private static final int LEAF_LINES = 4; // Lines solved by one task without splitting
+
+        private final int from;
+        private final int to;
+
+        PhaseTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= LEAF_LINES) {
+                solvePhase(threadScratch.get(), from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new PhaseTask(from, middle), new PhaseTask(middle, to));
+        }
+    }
+
+    // Settle one line and record the cells it learned in its own layout only
+    private boolean solvePhaseLine(LineScratch s, int index) {
+        if (!settleLine(s, index)) {
+            return false;
+        }
+        boolean isRow = index < size;
+        int base = (isRow ? index : index - size) * words;
+        long[] filled = isRow ? rowFilled : colFilled;
+        long[] empty = isRow ? rowEmpty : colEmpty;
+        int learnedBase = index * words;
+        for (int w = 0; w < words; w++) {
+            learnedFilled[learnedBase + w] = 0;
+            learnedEmpty[learnedBase + w] = 0;
+        }
+
+        int[] line = s.line;
+        for (int i = 0; i < size; i++) {
+            int w = base + (i >>> 6);
+            long bit = 1L << i;
+            if (line[i] == UNKNOWN || ((filled[w] | empty[w]) & bit) != 0) {
+                continue;
+            }
+            if (line[i] == FILLED) {
+                filled[w] |= bit;
+                learnedFilled[learnedBase + (i >>> 6)] |= bit;
+            } else {
+                empty[w] |= bit;
+                learnedEmpty[learnedBase + (i >>> 6)] |= bit;
+            }
+        }
+        return true;
+    }
+
+    // Copy what a line learned in the last phase into the other layout and queue the
+    // lines crossing it there
+    private void crossOver(int index) {
+        boolean isRow = index < size;
+        int lineIndex = isRow ? index : index - size;
+        long[] crossFilled = isRow ? colFilled : rowFilled;
+        long[] crossEmpty = isRow ? colEmpty : rowEmpty;
+        int crossFirst = isRow ? size : 0;
+        long bit = 1L << lineIndex;
+        int word = lineIndex >>> 6;
+        for (int w = 0; w < words; w++) {
+            for (long learned = learnedFilled[index * words + w]; learned != 0; learned &= learned - 1) {
+                int other = 64 * w + Long.numberOfTrailingZeros(learned);
+                crossFilled[other * words + word] |= bit;
+                queued[crossFirst + other] = true;
+                unknown--;
+            }
+            for (long learned = learnedEmpty[index * words + w]; learned != 0; learned &= learned - 1) {
+                int other = 64 * w + Long.numberOfTrailingZeros(learned);
+                crossEmpty[other * words + word] |= bit;
+                queued[crossFirst + other] = true;
+                unknown--;
+            }
+        }
+    }
+
+    // A generation that ran out of time is interrupted, stop counting for it
+    private static void checkCancelled() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException();
+        }
+    }
+
+    private void clearQueue() {
+        for (int i = 0; i < 2 * size; i++) {
+            queued[i] = false;
+        }
+        head = 0;
+        queuedCount = 0;
+        passLeft = 0;
+    }
+
+    private void enqueue(int index) {
+        if (!queued[index]) {
+            queued[index] = true;
+            queue[(head + queuedCount) % queue.length] = index;
+            queuedCount++;
+        }
+    }
+
+    // Index below size is a row, otherwise the column index - size
+    private boolean solveLine(int index) {
+        if (!settleLine(scratch, index)) {
+            return false;
+        }
+        boolean isRow = index < size;
+        int base = (isRow ? index : index - size) * words;
+        long[] filled = isRow ? rowFilled : colFilled;
+        long[] empty = isRow ? rowEmpty : colEmpty;
+        int[] line = scratch.line;
+
+        // Record what was learned, in both layouts, and queue the crossing lines
+        for (int i = 0; i < size; i++) {
+            int w = base + (i >>> 6);
+            long bit = 1L << i;
+            if (line[i] == UNKNOWN || ((filled[w] | empty[w]) & bit) != 0) {
+                continue;
+            }
+            int row = isRow ? index : i;
+            int col = isRow ? i : index - size;
+            set(row, col, line[i] == FILLED);
+            enqueue(isRow ? size + i : i);
+        }
+        return true;
+    }
+
+    // Load a line into the scratch from its own layout and settle it
+    private boolean settleLine(LineScratch s, int index) {
+        boolean isRow = index < size;
+        int base = (isRow ? index : index - size) * words;
+        long[] filled = isRow ? rowFilled : colFilled;
+        long[] empty = isRow ? rowEmpty : colEmpty;
+
+        int[] line = s.line;
+        for (int i = 0; i < size; i++) {
+            long bit = 1L << i;
+            int w = base + (i >>> 6);
+            line[i] = (filled[w] & bit) != 0 ? FILLED : (empty[w] & bit) != 0 ? EMPTY : UNKNOWN;
+        }
+
+        NonogramClues clues = isRow ? rowClues : columnClues;
+        int lineIndex = isRow ? index : index - size;
+        return settle(s, clues.getRuns(), clues.getOffsets()[lineIndex], clues.count(lineIndex));
+    }
+
+    private void set(int row, int col, boolean isFilled) {
+        long[] byRow = isFilled ? rowFilled : rowEmpty;
+        long[] byCol = isFilled ? colFilled : colEmpty;
+        byRow[row * words + (col >>> 6)] |= 1L << col;
+        byCol[col * words + (row >>> 6)] |= 1L << row;
+        unknown--;
+    }
+
+    // Fix every cell of the scratch line that all arrangements of the k runs starting at
+    // lengths[first] agree on. Returns false if the runs cannot be placed at all.
+    private boolean settle(LineScratch s, int[] lengths, int first, int k) {
+        int n = size;
+        int stride = n + 1;
+        if (k > maxRuns) {
+            return false;
+        }
+        int[] line = s.line;
+        int[] emptyBefore = s.emptyBefore;
+        boolean[] forward = s.forward;
+        boolean[] backward = s.backward;
+        int[] cover = s.cover;
+        boolean[] canEmpty = s.canEmpty;
+
+        emptyBefore[0] = 0;
+        for (int i = 0; i < n; i++) {
+            emptyBefore[i + 1] = emptyBefore[i] + (line[i] == EMPTY ? 1 : 0);
+        }
+
+        // Forward: the first j runs placed in [0, i), with cell i - 1 not inside an open run
+        for (int j = 0; j <= k; j++) {
+            for (int i = 0; i <= n; i++) {
+                boolean ok = j == 0 && i == 0;
+                if (i > 0 && line[i - 1] != FILLED && forward[j * stride + i - 1]) {
+                    ok = true;
+                }
+                if (!ok && j > 0) {
+                    int start = i - lengths[first + j - 1];
+                    if (start >= 0 && emptyBefore[i] == emptyBefore[start]) {
+                        ok = start == 0 ? j == 1 : line[start - 1] != FILLED && forward[(j - 1) * stride + start - 1];
+                    }
+                }
+                forward[j * stride + i] = ok;
+            }
+        }
+        if (!forward[k * stride + n]) {
+            return false;
+        }
+
+        // Backward: runs j..k-1 placed in [i, n)
+        for (int j = k; j >= 0; j--) {
+            for (int i = n; i >= 0; i--) {
+                boolean ok = j == k && i == n;
+                if (i < n && line[i] != FILLED && backward[j * stride + i + 1]) {
+                    ok = true;
+                }
+                if (!ok && j < k) {
+                    int end = i + lengths[first + j];
+                    if (end <= n && emptyBefore[end] == emptyBefore[i]) {
+                        ok = end == n ? j == k - 1 : line[end] != FILLED && backward[(j + 1) * stride + end + 1];
+                    }
+                }
+                backward[j * stride + i] = ok;
+            }
+        }
+
+        // A cell can be empty if some split of the runs leaves it between them
+        for (int i = 0; i < n; i++) {
+            boolean ok = false;
+            if (line[i] != FILLED) {
+                for (int j = 0; j <= k && !ok; j++) {
+                    ok = forward[j * stride + i] && backward[j * stride + i + 1];
+                }
+            }
+            canEmpty[i] = ok;
+        }
+
+        // A cell can be filled if some valid placement of some run covers it
+        for (int i = 0; i <= n; i++) {
+            cover[i] = 0;
+        }
+        for (int j = 0; j < k; j++) {
+            int length = lengths[first + j];
+            for (int start = 0; start + length <= n; start++) {
+                int end = start + length;
+                if (emptyBefore[end] != emptyBefore[start]) {
+                    continue;
+                }
+                boolean left = start == 0 ? j == 0 : line[start - 1] != FILLED && forward[j * stride + start - 1];
+                boolean right = end == n ? j == k - 1 : line[end] != FILLED && backward[(j + 1) * stride + end + 1];
+                if (left && right) {
+                    cover[start]++;
+                    cover[end]--;
+                }
+            }
+        }
+
+        int covered = 0;
+        for (int i = 0; i < n; i++) {
+            covered += cover[i];
+            boolean canFill = covered > 0;
+            if (!canFill && !canEmpty[i]) {
+                return false;
+            }
+            if (!canEmpty[i]) {
+                line[i] = FILLED;
+            } else if (!canFill) {
+                line[i] = EMPTY;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,149 @@
+package personal.logicpuzzles;
+
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+// Generates puzzles on background threads and keeps a few of each type ready,
+// so starting a new game never has to wait for a generator on the UI thread.
+public class PuzzleGenerationService {
+
+    private static final int QUEUE_SIZE = 3; // Ready puzzles kept per type
+    private static final long TIMEOUT_MILLIS = 2000; // Generations running longer than this are cancelled and restarted
+
+    private final ExecutorService workers;
+    private final ScheduledExecutorService watchdog;
+    private final Set<PuzzleQueue<?>> queues = ConcurrentHashMap.newKeySet();
+
+    public PuzzleGenerationService() {
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "puzzle-generator");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "puzzle-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Create a queue for one puzzle type and start filling it
+    public <T> PuzzleQueue<T> queue(Callable<T> generator) {
+        PuzzleQueue<T> queue = new PuzzleQueue<>(generator);
+        queues.add(queue);
+        queue.refill();
+        return queue;
+    }
+
+    // Cancel all running generations and stop the worker threads
+    public void shutdown() {
+        for (PuzzleQueue<?> queue : queues) {
+            queue.cancel();
+        }
+        queues.clear();
+        workers.shutdownNow();
+        watchdog.shutdownNow();
+    }
+
+    public class PuzzleQueue<T> {
+        private final Callable<T> generator;
+        private final BlockingQueue<T> ready = new ArrayBlockingQueue<>(QUEUE_SIZE);
+        private final Set<Generation> running = ConcurrentHashMap.newKeySet();
+        private volatile boolean cancelled;
+
+        private PuzzleQueue(Callable<T> generator) {
+            this.generator = generator;
+        }
+
+        // Take a ready puzzle without waiting, it's called on the UI thread. Returns null if
+        // none is ready yet, and the caller should try again later.
+        public T take() {
+            T puzzle = ready.poll();
+            refill();
+            return puzzle;
+        }
+
+        // Throw away ready puzzles and stop generating new ones; the queue can't be used again
+        public void cancel() {
+            cancelled = true;
+            queues.remove(this);
+            for (Generation generation : running) {
+                generation.cancel(true);
+            }
+            ready.clear();
+        }
+
+        // Start enough generations to fill the queue back up
+        private synchronized void refill() {
+            if (workers.isShutdown()) {
+                return;
+            }
+            while (!cancelled && ready.size() + running.size() < QUEUE_SIZE) {
+                Generation generation = new Generation();
+                running.add(generation);
+                workers.execute(generation);
+            }
+        }
+
+        // One background generation; done() runs when it finishes, fails or is cancelled
+        private class Generation extends FutureTask<T> {
+            Generation() {
+                super(generator);
+            }
+
+            // The time limit counts from when a worker starts the generation, not from
+            // when it was queued behind others
+            @Override
+            public void run() {
+                ScheduledFuture<?> timeout;
+                try {
+                    timeout = watchdog.schedule(() -> cancel(true), TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                } catch (RejectedExecutionException e) {
+                    // The service shut down after a worker picked this generation up
+                    cancel(false);
+                    return;
+                }
+                try {
+                    super.run();
+                } finally {
+                    timeout.cancel(false);
+                }
+            }
+
+            // Under the queue's lock, so refill never sees this generation neither running
+            // nor ready and starts one too many
+            @Override
+            protected void done() {
+                synchronized (PuzzleQueue.this) {
+                    if (isCancelled()) {
+                        // Timed out, start over with a fresh attempt
+                        running.remove(this);
+                        refill();
+                        return;
+                    }
+                    try {
+                        ready.offer(get());
+                        running.remove(this);
+                        refill();
+                    } catch (InterruptedException | ExecutionException e) {
+                        // Generator failed, leave the slot empty and let take() retry on demand
+                        running.remove(this);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package personal.logicpuzzles;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+// A saved game: the starting board and the board as the player left it, in one small
+// binary file. Cells are bit packed, 4 bits each for boards up to 15 wide and 5 bits
+// up to 31, after a header, and a CRC32 of everything before it ends the file, so a
+// damaged save is refused instead of loading a wrong board. Files are replaced
+// atomically: the save goes to a temporary file that is then renamed over the old one.
+//
+// Layout, big endian:
+//   int MAGIC, byte VERSION, byte type, byte size, byte bits per cell
+//   initial cells, then current cells, row by row, packed high bit first
+//   int CRC32 of all of the above
+public class PuzzleSave {
+
+    public static final int MAGIC = 0x4C505356; // "LPSV"
+    public static final int VERSION = 1;
+    public static final int TYPE_SUDOKU = 1;
+
+    private static final int HEADER_BYTES = 8;
+    private static final int MAX_SIZE = 31; // Largest board 5 bits per cell can hold
+
+    private final int type;
+    private final int[][] initial;
+    private final int[][] current;
+
+    public PuzzleSave(int type, int[][] initial, int[][] current) {
+        if (initial.length != current.length || initial.length < 1 || initial.length > MAX_SIZE) {
+            throw new IllegalArgumentException("Boards must be the same size, 1 to " + MAX_SIZE);
+        }
+        this.type = type;
+        this.initial = initial;
+        this.current = current;
+    }
+
+    public int getType() {
+        return type;
+    }
+
+    public int getSize() {
+        return initial.length;
+    }
+
+    public int[][] getInitial() {
+        return initial;
+    }
+
+    public int[][] getCurrent() {
+        return current;
+    }
+
+    private static int bitsFor(int size) {
+        return size <= 15 ? 4 : 5;
+    }
+
+    public byte[] toBytes() {
+        int size = initial.length;
+        int bits = bitsFor(size);
+        int packedBytes = (2 * size * size * bits + 7) / 8;
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + packedBytes + 4);
+        buffer.putInt(MAGIC);
+        buffer.put((byte) VERSION);
+        buffer.put((byte) type);
+        buffer.put((byte) size);
+        buffer.put((byte) bits);
+
+        // Pack both boards through a bit accumulator
+        long pending = 0;
+        int pendingBits = 0;
+        for (int[][] board : new int[][][]{initial, current}) {
+            for (int[] row : board) {
+                for (int i = 0; i < size; i++) {
+                    int value = row[i];
+                    if (value < 0 || value > size) {
+                        throw new IllegalArgumentException("Cell value " + value + " on a board of " + size);
+                    }
+                    pending = pending << bits | value;
+                    pendingBits += bits;
+                    while (pendingBits >= 8) {
+                        pendingBits -= 8;
+                        buffer.put((byte) (pending >>> pendingBits));
+                    }
+                }
+            }
+        }
+        if (pendingBits > 0) {
+            buffer.put((byte) (pending << (8 - pendingBits)));
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+        return buffer.array();
+    }
+
+    public static PuzzleSave fromBytes(byte[] bytes) throws IOException {
+        if (bytes.length < HEADER_BYTES + 4) {
+            throw new IOException("Save file too short");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length - 4);
+        if ((int) crc.getValue() != buffer.getInt(bytes.length - 4)) {
+            throw new IOException("Save file is damaged");
+        }
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("Not a save file");
+        }
+        int version = buffer.get();
+        if (version != VERSION) {
+            throw new IOException("Unsupported save version " + version);
+        }
+        int type = buffer.get();
+        int size = buffer.get();
+        int bits = buffer.get();
+        if (size < 1 || size > MAX_SIZE || bits != bitsFor(size)
+                || bytes.length != HEADER_BYTES + (2 * size * size * bits + 7) / 8 + 4) {
+            throw new IOException("Save file has a bad header");
+        }
+
+        int[][][] boards = new int[2][size][size];
+        int mask = (1 << bits) - 1;
+        long pending = 0;
+        int pendingBits = 0;
+        for (int[][] board : boards) {
+            for (int[] row : board) {
+                for (int i = 0; i < size; i++) {
+                    while (pendingBits < bits) {
+                        pending = pending << 8 | (buffer.get() & 0xFF);
+                        pendingBits += 8;
+                    }
+                    pendingBits -= bits;
+                    row[i] = (int) (pending >>> pendingBits) & mask;
+                    if (row[i] > size) {
+                        throw new IOException("Save file has a bad cell");
+                    }
+                }
+            }
+        }
+        return new PuzzleSave(type, boards[0], boards[1]);
+    }
+
+    // Replace file with this save. The old save stays whole until the new one is
+    // fully on disk, so a crash mid-write loses at most the newest save.
+    public void write(File file) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(toBytes());
+            out.getFD().sync();
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Could not replace " + file.getName());
+        }
+    }
+
+    // Read a save in one go; FileNotFoundException if there is none
+    public static PuzzleSave read(File file) throws IOException {
+        long length = file.length();
+        if (length > HEADER_BYTES + 2 * MAX_SIZE * MAX_SIZE + 4) {
+            throw new IOException("Save file too long");
+        }
+        byte[] bytes = new byte[(int) length];
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            in.readFully(bytes);
+            if (in.read() != -1) {
+                throw new IOException("Save file changed while reading");
+            }
+        }
+        return fromBytes(bytes);
+    }
+}
@@ -0,0 +1,78 @@
+package personal.logicpuzzles;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+// Log probabilities of English four letter sequences, for scoring decryptions.
+// Word breaks count as a 27th letter, so "_THE" and "ING_" score too, which is
+// what makes short quotes with their spaces kept crackable. The table is one flat
+// float array indexed by the packed code ((a * 27 + b) * 27 + c) * 27 + d, with
+// A = 0 and a word break = BREAK, so a lookup is a single load. It is read only
+// once loaded and can be shared between threads.
+public class QuadgramTable {
+
+    public static final int BREAK = 26;
+    public static final int SYMBOLS = 27;
+    public static final int SIZE = SYMBOLS * SYMBOLS * SYMBOLS * SYMBOLS;
+
+    private final float[] scores;
+
+    private QuadgramTable(float[] scores) {
+        this.scores = scores;
+    }
+
+    // Read lines of "QUAD count", e.g. "TION 15999" or "_THE 54259" with _ for a word
+    // break. Quadgrams that are not listed score as if seen a hundredth of a time.
+    public static QuadgramTable load(InputStream in) throws IOException {
+        int[] counts = new int[SIZE];
+        long total = 0;
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.US_ASCII));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            int space = line.indexOf(' ');
+            if (space != 4) {
+                continue; // Blank, comment or malformed line
+            }
+            int code = 0;
+            for (int i = 0; i < 4; i++) {
+                char c = Character.toUpperCase(line.charAt(i));
+                int letter = c == '_' ? BREAK : c - 'A';
+                if (letter < 0 || letter > BREAK) {
+                    throw new IOException("Not a quadgram: " + line);
+                }
+                code = code * SYMBOLS + letter;
+            }
+            int count;
+            try {
+                count = Integer.parseInt(line.substring(space + 1).trim());
+            } catch (NumberFormatException e) {
+                throw new IOException("Bad quadgram count: " + line, e);
+            }
+            counts[code] += count;
+            total += count;
+        }
+        if (total == 0) {
+            throw new IOException("No quadgrams");
+        }
+
+        float[] scores = new float[SIZE];
+        float floor = (float) Math.log10(0.01 / total);
+        for (int code = 0; code < SIZE; code++) {
+            scores[code] = counts[code] == 0 ? floor : (float) Math.log10((double) counts[code] / total);
+        }
+        return new QuadgramTable(scores);
+    }
+
+    // Score of the quadgram with letters a, b, c, d, each 0 to 25 or BREAK
+    public float score(int a, int b, int c, int d) {
+        return scores[((a * SYMBOLS + b) * SYMBOLS + c) * SYMBOLS + d];
+    }
+
+    // The backing array for scoring loops, indexed by packed code; not to be modified
+    public float[] getScores() {
+        return scores;
+    }
+}
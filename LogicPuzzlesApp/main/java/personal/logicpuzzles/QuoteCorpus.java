@@ -0,0 +1,182 @@
+package personal.logicpuzzles;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+// Quotes for cryptograms, read straight out of a binary corpus file that is memory
+// mapped rather than loaded, so tens of thousands of quotes cost no heap until one
+// is picked. The corpus is built ahead of time by QuoteCorpusBuilder, deduplicated,
+// and sorted into cells by letter count bucket and distinct letter count, so a quote
+// within given limits is picked without scanning the quotes.
+//
+// Layout, big endian:
+//   int MAGIC, int VERSION, int count, int buckets
+//   int cellStart[buckets * CELLS_PER_BUCKET + 1]  first record of each cell
+//   int offset[count + 1]                          record offsets from the data start
+//   data: per record, short letters, byte distinct, byte rating,
+//         short length + UTF-8 quote, short length + UTF-8 person
+// Records are sorted by bucket, then distinct letters, then letters.
+public class QuoteCorpus {
+
+    public static final int MAGIC = 0x51554F54; // "QUOT"
+    public static final int VERSION = 2;
+    public static final int LETTER_BUCKET = 10; // Letter counts per bucket
+    public static final int CELLS_PER_BUCKET = 27; // 0 to 26 distinct letters
+    public static final int UNRATED = 0xFF; // Rating byte of a quote the solver wasn't run on
+
+    private final ByteBuffer buffer;
+    private final int count;
+    private final int buckets;
+    private final int cellStartAt;
+    private final int offsetAt;
+    private final int dataAt;
+
+    private QuoteCorpus(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < 16 || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a quote corpus");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported quote corpus version " + buffer.getInt(4));
+        }
+        count = buffer.getInt(8);
+        buckets = buffer.getInt(12);
+        cellStartAt = 16;
+        offsetAt = cellStartAt + 4 * (buckets * CELLS_PER_BUCKET + 1);
+        dataAt = offsetAt + 4 * (count + 1);
+        if (count < 0 || buckets < 0 || dataAt > buffer.capacity()
+                || dataAt + buffer.getInt(offsetAt + 4 * count) > buffer.capacity()) {
+            throw new IOException("Truncated quote corpus");
+        }
+    }
+
+    // Map a corpus file read only; the mapping stays valid after the file is closed
+    public static QuoteCorpus map(File file) throws IOException {
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            return new QuoteCorpus(in.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, in.length()));
+        }
+    }
+
+    // A corpus already in memory, e.g. for tests and tools
+    public static QuoteCorpus wrap(ByteBuffer buffer) throws IOException {
+        return new QuoteCorpus(buffer.duplicate());
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public static int bucketOf(int letters) {
+        return letters / LETTER_BUCKET;
+    }
+
+    public int getLetters(int index) {
+        return buffer.getShort(recordAt(index)) & 0xFFFF;
+    }
+
+    public int getDistinct(int index) {
+        return buffer.get(recordAt(index) + 2);
+    }
+
+    // Percent of the letters the solver got right when the corpus was built, see
+    // CryptogramSolver.rate, or -1 if it wasn't rated
+    public int getRating(int index) {
+        int rating = buffer.get(recordAt(index) + 3) & 0xFF;
+        return rating == UNRATED ? -1 : rating;
+    }
+
+    public String getQuote(int index) {
+        return string(recordAt(index) + 4);
+    }
+
+    public String getPerson(int index) {
+        int at = recordAt(index) + 4;
+        return string(at + 2 + (buffer.getShort(at) & 0xFFFF));
+    }
+
+    // A random quote of any length
+    public int pick(Random random) {
+        if (count == 0) {
+            throw new IllegalStateException("Empty quote corpus");
+        }
+        return random.nextInt(count);
+    }
+
+    // A random quote with minLetters to maxLetters letters and minDistinct to maxDistinct
+    // different letters, all equally likely, or -1 if there is none. Only the cells that
+    // can hold such quotes are looked at, twice: once to count the matches and once to
+    // find the chosen one. A bucket wholly inside the letter limits is counted straight
+    // from the cell table; only the first and last bucket need a binary search on letters,
+    // so a pick costs O(buckets * distinct letters + distinct letters * log count) reads.
+    public int pick(Random random, int minLetters, int maxLetters, int minDistinct, int maxDistinct) {
+        int firstBucket = Math.max(0, bucketOf(minLetters));
+        int lastBucket = Math.min(buckets - 1, bucketOf(maxLetters));
+        minDistinct = Math.max(0, minDistinct);
+        maxDistinct = Math.min(CELLS_PER_BUCKET - 1, maxDistinct);
+
+        int matches = 0;
+        for (int pass = 0; pass < 2; pass++) {
+            int chosen = pass == 0 ? 0 : random.nextInt(matches);
+            for (int bucket = firstBucket; bucket <= lastBucket; bucket++) {
+                boolean whole = bucket * LETTER_BUCKET >= minLetters && (bucket + 1) * LETTER_BUCKET - 1 <= maxLetters;
+                for (int distinct = minDistinct; distinct <= maxDistinct; distinct++) {
+                    int cell = bucket * CELLS_PER_BUCKET + distinct;
+                    int from = cellStart(cell);
+                    int to = cellStart(cell + 1);
+                    if (!whole) {
+                        from = firstWithLetters(from, to, minLetters);
+                        to = firstWithLetters(from, to, maxLetters + 1);
+                    }
+                    if (pass == 0) {
+                        matches += to - from;
+                    } else if (chosen < to - from) {
+                        return from + chosen;
+                    } else {
+                        chosen -= to - from;
+                    }
+                }
+            }
+            if (matches == 0) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    private int cellStart(int cell) {
+        return buffer.getInt(cellStartAt + 4 * cell);
+    }
+
+    // First record in from to to with at least letters letters; a cell is sorted by letters
+    private int firstWithLetters(int from, int to, int letters) {
+        while (from < to) {
+            int mid = (from + to) >>> 1;
+            if (getLetters(mid) < letters) {
+                from = mid + 1;
+            } else {
+                to = mid;
+            }
+        }
+        return from;
+    }
+
+    private int recordAt(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Quote " + index + " of " + count);
+        }
+        return dataAt + buffer.getInt(offsetAt + 4 * index);
+    }
+
+    private String string(int at) {
+        byte[] bytes = new byte[buffer.getShort(at) & 0xFFFF];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(at + 2 + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -1,97 +1,649 @@
 package personal.logicpuzzles;
 
-import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 public class Sudoku
 {
+    private final int size;     // Digits per row, column and box
+    private final int boxSize;  // Width and height of a box
+    private final int cellCount;
+    private final int all;      // One bit per digit, bit 0 = digit 1
+
+    // Lookup tables from cell index to its row, column and box
+    private final int[] rowOf;
+    private final int[] colOf;
+    private final int[] boxOf;
+
+    // Digits already used in each row, column and box
+    private final int[] rows;
+    private final int[] cols;
+    private final int[] boxes;
+
+    // Cells of each row, then each column, then each box
+    private final int[] units;
+
+    // Empty cells of the loaded board; the first filled of them have been filled by the search
+    private final int[] empty;
+    private final int[] position; // Index of each cell in empty
+    private int emptyCount;
+    private int filled;
+
+    // Search nodes used by the current count, and how many it may use
+    private int nodes;
+    private int nodeLimit = Integer.MAX_VALUE;
+
+    private final int[] cells;
+    private final int[] digits;
+    private final int[] order;
+    private int chosen;
+    private long seed; // State of the splitmix64 random source, reseeded by setSeed
+    private boolean shuffle; // Try candidates in a random order, only while generating
+
+    // Optional exact cover engine used instead of the bitmask search
+    private DancingLinks exactCover;
+
+    private SudokuGrader grader;
+    // Puzzles tried, and time spent, before settling for the closest difficulty
+    private static final int GRADE_ATTEMPTS = 50;
+    private static final long GRADE_NANOS = 1_000_000_000L;
+    private long deadline; // nanoTime after which generateUnique stops removing clues, 0 for none
+
+    // Search nodes one attempt at filling a solution may use before starting over
+    // from a fresh shuffle; an unlucky start can otherwise search for minutes
+    private static final int FILL_NODES_PER_CELL = 4;
+
+    public Sudoku()
+    {
+        this(3);
+    }
+
+    // A board of (boxSize * boxSize) x (boxSize * boxSize) cells, up to 25x25
+    public Sudoku(int boxSize)
+    {
+        this(boxSize, new SplittableRandom());
+    }
+
+    // Seeded from random, so give each thread its own split
+    public Sudoku(int boxSize, SplittableRandom random)
+    {
+        this.boxSize = boxSize;
+        seed = random.nextLong();
+        size = boxSize * boxSize;
+        cellCount = size * size;
+        all = (1 << size) - 1;
+
+        rowOf = new int[cellCount];
+        colOf = new int[cellCount];
+        boxOf = new int[cellCount];
+        for (int cell = 0; cell < cellCount; cell++)
+        {
+            rowOf[cell] = cell / size;
+            colOf[cell] = cell % size;
+            boxOf[cell] = (rowOf[cell] / boxSize) * boxSize + colOf[cell] / boxSize;
+        }
+
+        rows = new int[size];
+        cols = new int[size];
+        boxes = new int[size];
+        units = new int[3 * cellCount];
+        for (int cell = 0; cell < cellCount; cell++)
+        {
+            int inBox = (rowOf[cell] % boxSize) * boxSize + colOf[cell] % boxSize;
+            units[rowOf[cell] * size + colOf[cell]] = cell;
+            units[(size + colOf[cell]) * size + rowOf[cell]] = cell;
+            units[(2 * size + boxOf[cell]) * size + inBox] = cell;
+        }
+
+        empty = new int[cellCount];
+        position = new int[cellCount];
+        cells = new int[cellCount];
+        digits = new int[size];
+        order = new int[cellCount];
+    }
+
+    public int getSize()
+    {
+        return size;
+    }
+
+    // Restart the random source, the same seed gives the same boards from here on
+    public void setSeed(long seed)
+    {
+        this.seed = seed;
+    }
+
     public int[][] generate()
     {
-        Random rand = new Random();
+        return generate(new int[size][size]);
+    }
+
+    public int[][] generate(long seed, int[][] board)
+    {
+        setSeed(seed);
+        return generate(board);
+    }
+
+    // Generate into a size x size board owned by the caller, overwriting it. Once the
+    // board exists nothing is allocated, so a loop of generations makes no garbage.
+    public int[][] generate(int[][] board)
+    {
+        generateSolution(board);
+
+        // Remove some cells to make a puzzle
+        for (int i = 0; i < size; i++)
+            for (int j = 0; j < size; j++)
+                if (nextDouble() >= 0.4)
+                    board[i][j] = 0;
+
+        return board;
+    }
+
+    // Generate a puzzle that has exactly one solution
+    public int[][] generateUnique()
+    {
+        return generateUnique(new int[size][size]);
+    }
+
+    public int[][] generateUnique(long seed, int[][] board)
+    {
+        setSeed(seed);
+        return generateUnique(board);
+    }
+
+    // Same as generate(board), but with exactly one solution
+    public int[][] generateUnique(int[][] board)
+    {
+        generateSolution(board);
+
+        // Visit the cells in a random order
+        for (int cell = 0; cell < cellCount; cell++)
+            order[cell] = cell;
+        for (int i = 0; i < cellCount; i++)
+        {
+            int j = i + nextInt(cellCount - i);
+            int temp = order[i];
+            order[i] = order[j];
+            order[j] = temp;
+        }
+
+        // Remove each clue, and put it back if the puzzle stops being unique.
+        // Checks that need a long search are treated as not unique, which keeps
+        // a few more clues on large boards but bounds the time taken.
+        // Past the deadline the remaining clues stay, still unique but easier.
+        nodeLimit = 2 * size;
+        for (int i = 0; i < cellCount && !pastDeadline(); i++)
+        {
+            int x = rowOf[order[i]];
+            int y = colOf[order[i]];
+            int value = board[x][y];
+            board[x][y] = 0;
+            if (countSolutions(board, 2) != 1)
+                board[x][y] = value;
+        }
+        nodeLimit = Integer.MAX_VALUE;
+
+        return board;
+    }
+
+    // Generate a unique puzzle of the given difficulty, or the closest one found
+    public int[][] generateUnique(SudokuGrader.Difficulty difficulty)
+    {
+        if (grader == null)
+            grader = new SudokuGrader(boxSize);
+
+        int[][] closest = null;
+        int closestDistance = Integer.MAX_VALUE;
+        long outer = deadline;
+        long end = System.nanoTime() + GRADE_NANOS;
+        if (outer == 0 || end - outer < 0)
+            deadline = end;
+        try
+        {
+            // The first attempt always finishes, cut short if need be
+            for (int attempt = 0; attempt < GRADE_ATTEMPTS && (attempt == 0 || !pastDeadline()); attempt++)
+            {
+                int[][] board = generateUnique();
+                int distance = Math.abs(grader.grade(board).getDifficulty().ordinal() - difficulty.ordinal());
+                if (distance == 0)
+                    return board;
+                if (distance < closestDistance)
+                {
+                    closest = board;
+                    closestDistance = distance;
+                }
+            }
+        }
+        finally
+        {
+            deadline = outer;
+        }
+        return closest;
+    }
+
+    private boolean pastDeadline()
+    {
+        return deadline != 0 && System.nanoTime() - deadline > 0;
+    }
 
-        // Initialize empty 9x9 board
-        int[][] board = new int[9][9];
-        for (int i = 0; i < 9; i++)
-            for (int j = 0; j < 9; j++)
+    // Count the solutions of a board, stopping once limit is reached
+    public int countSolutions(int[][] board, int limit)
+    {
+        if (exactCover != null)
+            return exactCover.countSolutions(board, limit);
+
+        if (!load(board))
+            return 0;
+        nodes = 0;
+        return count(limit);
+    }
+
+    // A complete random grid, the fill step of every generation without the clue removal.
+    // Package private so SudokuBenchmark can time it on its own.
+    void generateSolution(int[][] board)
+    {
+        // Fill the rest of the board, from a new shuffle whenever an attempt runs out of nodes
+        shuffle = true;
+        int limit = nodeLimit;
+        nodeLimit = FILL_NODES_PER_CELL * cellCount;
+        try
+        {
+            do
+                shuffleDiagonal(board);
+            while (!fill());
+        }
+        finally
+        {
+            nodeLimit = limit;
+            shuffle = false;
+        }
+        store(board);
+    }
+
+    // Clear the board and fill the boxes on the diagonal, then load it and reset the node count
+    private void shuffleDiagonal(int[][] board)
+    {
+        for (int i = 0; i < size; i++)
+            for (int j = 0; j < size; j++)
                 board[i][j] = 0;
 
-        // Create randomized order of numbers for each cell
-        int[][][] order = new int[9][9][9];
-        for (int x = 0; x < 9; x++)
-            for (int y = 0; y < 9; y++)
+        // The boxes on the diagonal share no row or column, so shuffle each one directly
+        for (int box = 0; box < boxSize; box++)
+        {
+            for (int i = 0; i < size; i++)
+                digits[i] = i + 1;
+            for (int i = 0; i < size; i++)
             {
-                for (int i = 0; i < 9; i++)
-                    order[x][y][i] = i+1;
+                int j = i + nextInt(size - i);
+                int temp = digits[i];
+                digits[i] = digits[j];
+                digits[j] = temp;
+            }
+            for (int i = 0; i < size; i++)
+                board[box * boxSize + i / boxSize][box * boxSize + i % boxSize] = digits[i];
+        }
+        load(board);
+        nodes = 0;
+    }
+
+    // Generate up to count unique puzzles on all cores and pass each one to sink as soon
+    // as it is made. Every worker has its own Sudoku and its own split of the random
+    // source, so the same seed gives the same set of puzzles, and sink is called from many
+    // threads. Workers stop starting puzzles after timeoutMillis, and the puzzle in hand
+    // keeps fewer clues rather than run on, so this returns soon after the timeout with
+    // the number of puzzles made.
+    public static int generateBatch(int boxSize, int count, long seed, long timeoutMillis, Consumer<int[][]> sink)
+    {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        return ForkJoinPool.commonPool().invoke(new BatchTask(boxSize, count, new SplittableRandom(seed), deadline, sink));
+    }
+
+    private static class BatchTask extends RecursiveTask<Integer>
+    {
+        private static final long serialVersionUID = 1L;
+        private static final int LEAF_SIZE = 16; // Puzzles generated by one task without splitting
+
+        private final int boxSize;
+        private final int count;
+        private final SplittableRandom random;
+        private final long deadline;
+        private final Consumer<int[][]> sink;
+
+        BatchTask(int boxSize, int count, SplittableRandom random, long deadline, Consumer<int[][]> sink)
+        {
+            this.boxSize = boxSize;
+            this.count = count;
+            this.random = random;
+            this.deadline = deadline;
+            this.sink = sink;
+        }
 
-                for (int i = 0; i < 9; i++)
+        @Override
+        protected Integer compute()
+        {
+            if (count <= LEAF_SIZE)
+            {
+                Sudoku sudoku = new Sudoku(boxSize, random);
+                sudoku.deadline = deadline;
+                int made = 0;
+                while (made < count && !sudoku.pastDeadline() && !isCancelled())
                 {
-                    int j = i + rand.nextInt(9-i);
-                    int temp = order[x][y][i];
-                    order[x][y][i] = order[x][y][j];
-                    order[x][y][j] = temp;
+                    sink.accept(sudoku.generateUnique());
+                    made++;
                 }
+                return made;
             }
 
-        // Fill the board
-        fill(board, order, 0);
+            int half = count / 2;
+            BatchTask first = new BatchTask(boxSize, half, random.split(), deadline, sink);
+            BatchTask second = new BatchTask(boxSize, count - half, random, deadline, sink);
+            invokeAll(first, second);
+            return first.join() + second.join();
+        }
+    }
 
-        // Remove some cells to make a puzzle
-        for (int i = 0; i < 9; i++)
-            for (int j = 0; j < 9; j++)
-                if (rand.nextDouble() < 0.4)
-                    board[i][j] = board[i][j];
-                else
-                    board[i][j] = 0;
+    // Switch solve and countSolutions over to dancing links
+    public void useExactCover(boolean enabled)
+    {
+        if (!enabled)
+            exactCover = null;
+        else if (exactCover == null)
+            exactCover = new DancingLinks(boxSize);
+    }
 
-        return board;
+    // Solve a board in place, returns false if it has no solution
+    public boolean solve(int[][] board)
+    {
+        if (exactCover != null)
+            return exactCover.solve(board);
+
+        if (!load(board) || !fill())
+            return false;
+        store(board);
+        return true;
     }
 
-    private boolean fill(int[][] board, int[][][] order, int location)
+    // Copy a board into the masks, returns false if the givens already clash
+    private boolean load(int[][] board)
     {
-        int x = location/9;
-        int y = location%9;
-        int k;
+        for (int i = 0; i < size; i++)
+            rows[i] = cols[i] = boxes[i] = 0;
+        emptyCount = 0;
+        filled = 0;
 
-        // All cells filled
-        if (location > 80)
-            return true;
-        // Skip filled cells
-        else if (board[x][y] != 0)
-            return fill(board, order, location+1);
-        else
+        for (int cell = 0; cell < cellCount; cell++)
         {
-            // Try each number in a randomized order
-            for (k = 0; k < 9; k++)
+            int value = board[rowOf[cell]][colOf[cell]];
+            cells[cell] = value;
+            if (value == 0)
             {
-                board[x][y] = order[x][y][k];
-                if (check(board, x, y) && fill(board, order, location+1))
-                    return true;
+                position[cell] = emptyCount;
+                empty[emptyCount++] = cell;
             }
-            board[x][y] = 0;
+            else
+            {
+                int bit = 1 << (value - 1);
+                if (((rows[rowOf[cell]] | cols[colOf[cell]] | boxes[boxOf[cell]]) & bit) != 0)
+                    return false;
+                place(cell, bit);
+            }
+        }
+        return true;
+    }
+
+    private void store(int[][] board)
+    {
+        for (int cell = 0; cell < cellCount; cell++)
+            board[rowOf[cell]][colOf[cell]] = cells[cell];
+    }
+
+    private boolean fill()
+    {
+        checkCancelled();
+        // Generating gives up once out of nodes, and generateSolution starts over
+        if (shuffle && ++nodes > nodeLimit)
             return false;
+        int mark = filled;
+        if (propagate(true))
+        {
+            // All cells filled
+            if (filled == emptyCount)
+                return true;
+
+            // Try each candidate of the most constrained cell, in a random order when generating
+            int count = choose();
+            int cell = empty[filled];
+            int candidates = chosen;
+            while (candidates != 0 && (!shuffle || nodes <= nodeLimit))
+            {
+                int bit = shuffle ? pick(candidates, count--) : Integer.lowestOneBit(candidates);
+                candidates &= ~bit;
+
+                int before = filled;
+                assign(cell, bit);
+                if (fill())
+                    return true;
+                undo(before);
+            }
         }
+        undo(mark);
+        return false;
     }
 
-    private boolean check(int[][] board, int x, int y)
+    // Same search as fill, but keeps going to count solutions up to limit
+    private int count(int limit)
     {
-        int a, b, i, j;
+        checkCancelled();
+        // Out of search budget, report as many solutions as asked for
+        if (++nodes > nodeLimit)
+            return limit;
+        int mark = filled;
+        int found = 0;
+        if (propagate(true))
+        {
+            if (filled == emptyCount)
+                found = 1;
+            else
+            {
+                choose();
+                int cell = empty[filled];
+                int candidates = chosen;
+                while (candidates != 0 && found < limit)
+                {
+                    int bit = Integer.lowestOneBit(candidates);
+                    candidates &= ~bit;
 
-        // Check row
-        for (j = 0; j < 9; j++)
-            if (j != y && board[x][j] == board[x][y])
-                return false;
+                    int before = filled;
+                    assign(cell, bit);
+                    found += count(limit - found);
+                    undo(before);
+                }
+            }
+        }
+        undo(mark);
+        return found;
+    }
 
-        // Check column
-        for (i = 0; i < 9; i++)
-            if (i != x && board[i][y] == board[x][y])
-                return false;
+    // Place every forced digit: cells with one candidate left, and optionally digits
+    // with one place left in a row, column or box. Returns false on a contradiction.
+    private boolean propagate(boolean hiddenSingles)
+    {
+        boolean changed = true;
+        while (changed && filled < emptyCount)
+        {
+            changed = false;
 
-        // Check 3x3 box
-        a = (x/3)*3; b = (y/3)*3;
-        for (i = 0; i < 3; i++)
-            for (j = 0; j < 3; j++)
-                if ((a + i != x) && (b + j != y) && board[a+i][b+j] == board[x][y])
+            // Naked singles
+            for (int i = filled; i < emptyCount; i++)
+            {
+                int cell = empty[i];
+                int candidates = candidates(cell);
+                if (candidates == 0)
                     return false;
+                if ((candidates & (candidates - 1)) == 0)
+                {
+                    assign(cell, candidates);
+                    changed = true;
+                }
+            }
+
+            // Only look for hidden singles once the naked ones run out
+            if (changed || !hiddenSingles)
+                continue;
+
+            // Hidden singles
+            for (int unit = 0; unit < 3 * size; unit++)
+            {
+                int used = unit < size ? rows[unit] : unit < 2 * size ? cols[unit - size] : boxes[unit - 2 * size];
+                int start = unit * size;
+
+                // Digits seen in at least one, and in at least two, empty cells of the unit
+                int once = 0;
+                int twice = 0;
+                for (int k = start; k < start + size; k++)
+                {
+                    int cell = units[k];
+                    if (cells[cell] == 0)
+                    {
+                        int candidates = candidates(cell);
+                        twice |= once & candidates;
+                        once |= candidates;
+                    }
+                }
 
+                // Some digit has nowhere left to go
+                if ((once | used) != all)
+                    return false;
+
+                int hidden = once & ~twice;
+                while (hidden != 0)
+                {
+                    int bit = Integer.lowestOneBit(hidden);
+                    hidden &= ~bit;
+
+                    int k = start;
+                    while (k < start + size && (cells[units[k]] != 0 || (candidates(units[k]) & bit) == 0))
+                        k++;
+                    if (k == start + size)
+                        return false;
+                    assign(units[k], bit);
+                    changed = true;
+                }
+            }
+        }
         return true;
     }
-}
\ No newline at end of file
+
+    // Move the empty cell with the fewest candidates to the front of the
+    // unfilled cells, leaves its candidates in chosen and returns how many there are
+    private int choose()
+    {
+        int best = filled;
+        int bestCandidates = 0;
+        int bestCount = size + 1;
+        for (int i = filled; i < emptyCount; i++)
+        {
+            int candidates = candidates(empty[i]);
+            int count = Integer.bitCount(candidates);
+            if (count < bestCount)
+            {
+                best = i;
+                bestCandidates = candidates;
+                bestCount = count;
+                if (count <= 2)
+                    break;
+            }
+        }
+
+        swap(best, filled);
+        chosen = bestCandidates;
+        return bestCount;
+    }
+
+    private int candidates(int cell)
+    {
+        return all & ~(rows[rowOf[cell]] | cols[colOf[cell]] | boxes[boxOf[cell]]);
+    }
+
+    // Fill an empty cell and move it into the filled part of empty
+    private void assign(int cell, int bit)
+    {
+        place(cell, bit);
+        cells[cell] = Integer.numberOfTrailingZeros(bit) + 1;
+        swap(position[cell], filled++);
+    }
+
+    // Empty the cells filled since mark, most recent first
+    private void undo(int mark)
+    {
+        while (filled > mark)
+        {
+            int cell = empty[--filled];
+            remove(cell, 1 << (cells[cell] - 1));
+            cells[cell] = 0;
+        }
+    }
+
+    private void swap(int i, int j)
+    {
+        int a = empty[i];
+        int b = empty[j];
+        empty[i] = b;
+        empty[j] = a;
+        position[a] = j;
+        position[b] = i;
+    }
+
+    // Lets a background generation that timed out stop early
+    private void checkCancelled()
+    {
+        if (Thread.currentThread().isInterrupted())
+            throw new CancellationException();
+    }
+
+    // Pick a random set bit out of count set bits
+    private int pick(int candidates, int count)
+    {
+        for (int n = nextInt(count); n > 0; n--)
+            candidates &= candidates - 1;
+        return Integer.lowestOneBit(candidates);
+    }
+
+    // splitmix64, the generator behind SplittableRandom, kept inline so it can be reseeded
+    private long nextLong()
+    {
+        long z = seed += 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    // Uniform in [0, bound) up to a bias of bound / 2^32
+    private int nextInt(int bound)
+    {
+        return (int) (((nextLong() >>> 32) * bound) >>> 32);
+    }
+
+    private double nextDouble()
+    {
+        return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+
+    private void place(int cell, int bit)
+    {
+        rows[rowOf[cell]] |= bit;
+        cols[colOf[cell]] |= bit;
+        boxes[boxOf[cell]] |= bit;
+    }
+
+    private void remove(int cell, int bit)
+    {
+        rows[rowOf[cell]] &= ~bit;
+        cols[colOf[cell]] &= ~bit;
+        boxes[boxOf[cell]] &= ~bit;
+    }
+}
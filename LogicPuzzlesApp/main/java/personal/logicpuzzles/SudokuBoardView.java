@@ -0,0 +1,229 @@
+package personal.logicpuzzles;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.view.MotionEvent;
+import android.view.View;
+
+// The sudoku grid and a number pad under it, drawn on one canvas.
+// Cells are kept in an offscreen bitmap and only the cells the board marks
+// dirty are drawn into it again, so a frame is one bitmap copy plus the
+// selection and the pad. Tap a cell to select it, then tap a number.
+public class SudokuBoardView extends View
+{
+    // Called when the player enters a value, 0 to clear the cell
+    public interface OnCellInputListener
+    {
+        void onCellInput(int x, int y, int value);
+    }
+
+    private SudokuGameBoard board;
+    private OnCellInputListener listener;
+    private int selectedX = -1, selectedY = -1;
+
+    // Layout, recomputed when the view changes size
+    private int size;
+    private int boxSize;
+    private float cell;
+    private int padColumns, padRows;
+    private float keyWidth, keyHeight;
+    private float padTop;
+
+    private Bitmap cells;
+    private Canvas cellCanvas;
+    private boolean redrawAll;
+
+    private final Paint linePaint = new Paint();
+    private final Paint emptyPaint = new Paint();
+    private final Paint givenPaint = new Paint();
+    private final Paint selectedPaint = new Paint();
+    private final Paint textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint keyPaint = new Paint();
+    private final Paint keyTextPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint keyDimTextPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+    public SudokuBoardView(Context context)
+    {
+        super(context);
+        linePaint.setColor(Color.WHITE);
+        emptyPaint.setColor(Color.parseColor("#AFAFDC"));
+        givenPaint.setColor(Color.parseColor("#8A84E2"));
+        selectedPaint.setColor(Color.parseColor("#4B4592"));
+        selectedPaint.setStyle(Paint.Style.STROKE);
+        textPaint.setColor(Color.WHITE);
+        textPaint.setTextAlign(Paint.Align.CENTER);
+        keyPaint.setColor(Color.parseColor("#8A84E2"));
+        keyTextPaint.setColor(Color.WHITE);
+        keyTextPaint.setTextAlign(Paint.Align.CENTER);
+        keyDimTextPaint.setColor(Color.parseColor("#C8C4F0"));
+        keyDimTextPaint.setTextAlign(Paint.Align.CENTER);
+    }
+
+    // Show another board, everything is drawn again
+    public void setBoard(SudokuGameBoard board)
+    {
+        boolean resized = this.board == null || board.getSize() != size;
+        this.board = board;
+        size = board.getSize();
+        boxSize = (int) Math.round(Math.sqrt(size));
+        selectedX = selectedY = -1;
+        redrawAll = true;
+        if (resized)
+        {
+            if (getWidth() > 0)
+                updateLayout(getWidth());
+            requestLayout();
+        }
+        invalidate();
+    }
+
+    public void setOnCellInputListener(OnCellInputListener listener)
+    {
+        this.listener = listener;
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec)
+    {
+        int width = MeasureSpec.getSize(widthMeasureSpec);
+        layoutPad(width);
+        setMeasuredDimension(width, (int) (width + padRows * keyHeight));
+    }
+
+    // Digits and a clear key, in about boxSize - 1 rows
+    private void layoutPad(int width)
+    {
+        int keys = size + 1;
+        padRows = Math.max(2, boxSize - 1);
+        padColumns = (keys + padRows - 1) / padRows;
+        keyWidth = (float) width / padColumns;
+        keyHeight = Math.min(keyWidth, width / 8f);
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh)
+    {
+        super.onSizeChanged(w, h, oldw, oldh);
+        if (w > 0 && size > 0)
+            updateLayout(w);
+    }
+
+    // Cell and text sizes for a width, and a fresh bitmap for the grid
+    private void updateLayout(int w)
+    {
+        layoutPad(w);
+        cell = (float) w / size;
+        padTop = w;
+        textPaint.setTextSize(cell * 0.5f);
+        keyTextPaint.setTextSize(keyHeight * 0.45f);
+        keyDimTextPaint.setTextSize(keyHeight * 0.45f);
+        selectedPaint.setStrokeWidth(Math.max(3, cell * 0.08f));
+        if (cells != null)
+            cells.recycle();
+        cells = Bitmap.createBitmap(w, w, Bitmap.Config.ARGB_8888);
+        cellCanvas = new Canvas(cells);
+        redrawAll = true;
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas)
+    {
+        super.onDraw(canvas);
+        if (board == null || cells == null)
+            return;
+
+        // Bring the bitmap up to date with the board
+        if (redrawAll)
+        {
+            cellCanvas.drawColor(linePaint.getColor());
+            for (int x = 0; x < size; x++)
+                for (int y = 0; y < size; y++)
+                    drawCell(x, y);
+            redrawAll = false;
+        }
+        else if (board.hasDirty())
+        {
+            for (int x = 0; x < size; x++)
+                for (int y = 0; y < size; y++)
+                    if (board.isDirty(x, y))
+                        drawCell(x, y);
+        }
+        board.clearDirty();
+        canvas.drawBitmap(cells, 0, 0, null);
+
+        if (selectedX >= 0)
+        {
+            float inset = selectedPaint.getStrokeWidth() / 2;
+            canvas.drawRect(selectedY * cell + inset, selectedX * cell + inset,
+                    (selectedY + 1) * cell - inset, (selectedX + 1) * cell - inset, selectedPaint);
+        }
+
+        // Number pad, digits that can't go in the selected cell are dimmed
+        int candidates = selectedX >= 0 ? board.candidates(selectedX, selectedY) : 0;
+        float baseline = keyHeight / 2 - (keyTextPaint.ascent() + keyTextPaint.descent()) / 2;
+        for (int key = 0; key <= size; key++)
+        {
+            float left = (key % padColumns) * keyWidth;
+            float top = padTop + (key / padColumns) * keyHeight;
+            canvas.drawRect(left + 2, top + 2, left + keyWidth - 2, top + keyHeight - 2, keyPaint);
+            int value = key < size ? key + 1 : 0;
+            String label = value == 0 ? "X" : Integer.toString(value);
+            boolean usable = value == 0 || (candidates & (1 << (value - 1))) != 0;
+            canvas.drawText(label, left + keyWidth / 2, top + baseline, usable ? keyTextPaint : keyDimTextPaint);
+        }
+    }
+
+    // Draw one cell into the bitmap, with a wider gap on the box edges
+    private void drawCell(int x, int y)
+    {
+        float left = y * cell + (y % boxSize == 0 ? 3 : 1);
+        float top = x * cell + (x % boxSize == 0 ? 3 : 1);
+        float right = (y + 1) * cell - ((y + 1) % boxSize == 0 ? 3 : 1);
+        float bottom = (x + 1) * cell - ((x + 1) % boxSize == 0 ? 3 : 1);
+        cellCanvas.drawRect(left, top, right, bottom, board.isGiven(x, y) ? givenPaint : emptyPaint);
+        int value = board.getBoard()[x][y];
+        if (value != 0)
+        {
+            float baseline = (top + bottom) / 2 - (textPaint.ascent() + textPaint.descent()) / 2;
+            cellCanvas.drawText(Integer.toString(value), (left + right) / 2, baseline, textPaint);
+        }
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event)
+    {
+        if (board == null || event.getActionMasked() != MotionEvent.ACTION_UP)
+            return true;
+
+        float px = event.getX();
+        float py = event.getY();
+        // A touch can end outside the view after sliding off it
+        if (px < 0 || py < 0 || px >= getWidth() || py >= getHeight())
+            return true;
+        if (py < padTop)
+        {
+            // Select a cell the player can change
+            int x = Math.min(size - 1, (int) (py / cell));
+            int y = Math.min(size - 1, (int) (px / cell));
+            if (!board.isGiven(x, y))
+            {
+                selectedX = x;
+                selectedY = y;
+                invalidate();
+            }
+        }
+        else if (selectedX >= 0)
+        {
+            int key = (int) ((py - padTop) / keyHeight) * padColumns + Math.min(padColumns - 1, (int) (px / keyWidth));
+            if (key <= size && listener != null)
+            {
+                listener.onCellInput(selectedX, selectedY, key < size ? key + 1 : 0);
+                invalidate();
+            }
+        }
+        return true;
+    }
+}
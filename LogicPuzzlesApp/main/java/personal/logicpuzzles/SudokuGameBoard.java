@@ -1,53 +1,176 @@
 package personal.logicpuzzles;
 
+import java.util.Arrays;
+
 public class SudokuGameBoard {
     private int[][] board;
     private int size;
+    private int boxSize;
     private Sudoku puzzle;
 
+    // Digits used in each row, column and box, bit d-1 for digit d, kept up to date by set
+    private int[] rowMasks;
+    private int[] colMasks;
+    private int[] boxMasks;
+    private int filled; // Cells holding a digit
+
+    // Cells the puzzle started with, and cells changed since the view last drew them
+    private boolean[] given;
+    private long[] dirty; // Bit i is cell (i / size, i % size)
+    private boolean anyDirty;
+
+    // Size is 9, 16 or 25
     public SudokuGameBoard(int size)
     {
-        this.size = size;
+        this(size, null);
+    }
 
-        // Generate sudoku board
-        puzzle = new Sudoku();
-        board = puzzle.generate();
+    // A null difficulty takes whatever the generator produces
+    public SudokuGameBoard(int size, SudokuGrader.Difficulty difficulty)
+    {
+        // Generate sudoku board with a single solution
+        puzzle = new Sudoku((int) Math.round(Math.sqrt(size)));
+        setBoard(difficulty == null ? puzzle.generateUnique() : puzzle.generateUnique(difficulty));
     }
 
-    public void set(int value, int x, int y){
-        if(check(value, x, y))
-            board[x][y] = value;
+    // An existing puzzle, e.g. one made from a fixed seed
+    public SudokuGameBoard(int[][] board)
+    {
+        setBoard(board);
     }
 
-    public boolean check(int value, int x, int y){
-        int a, b, i, j;
+    // A saved game: the puzzle as it started with the player's entries from current on top,
+    // at whatever size the save is. Entries that don't fit, as in a damaged save, are left out.
+    public static SudokuGameBoard restore(int[][] initial, int[][] current)
+    {
+        int size = initial.length;
+        int[][] start = new int[size][];
+        for (int i = 0; i < size; i++)
+            start[i] = initial[i].clone();
+        SudokuGameBoard board = new SudokuGameBoard(start);
+        for (int i = 0; i < size; i++)
+            for (int j = 0; j < size; j++)
+                if (current[i][j] != initial[i][j])
+                    board.set(current[i][j], i, j);
+        return board;
+    }
+
+    // Place a value, or clear the cell with 0; returns false and leaves the cell alone if the value does not fit
+    // or the cell is one of the puzzle's clues
+    public boolean set(int value, int x, int y){
+        if(isGiven(x, y) || (value != 0 && !check(value, x, y)))
+            return false;
 
-        // Check row
-        for (j = 0; j < 9; j++)
-            if (j != y && board[x][j] == value)
-                return false; // False = cannot put there
+        int old = board[x][y];
+        if(old != 0){
+            int bit = ~(1 << (old - 1));
+            rowMasks[x] &= bit;
+            colMasks[y] &= bit;
+            boxMasks[box(x, y)] &= bit;
+            filled--;
+        }
+        if(value != 0){
+            int bit = 1 << (value - 1);
+            rowMasks[x] |= bit;
+            colMasks[y] |= bit;
+            boxMasks[box(x, y)] |= bit;
+            filled++;
+        }
+        board[x][y] = value;
+        markDirty(x, y);
+        return true;
+    }
 
-        // Check column
-        for (i = 0; i < 9; i++)
-            if (i != x && board[i][y] == value)
-                return false; // False = cannot put there
+    public boolean check(int value, int x, int y){
+        if(value < 1 || value > size)
+            return false;
+        int bit = 1 << (value - 1);
+        return (used(x, y) & bit) == 0; // True = okay to place
+    }
 
-        // Check 3x3
-        a = (x/3)*3; b = (y/3)*3;
-        for (i = 0; i < 3; i++)
-            for (j = 0; j < 3; j++)
-                if ((a + i != x) && (b + j != y) && board[a+i][b+j] == value)
-                    return false; // False = cannot put there
+    // Digits that could go in a cell given the rest of the board, bit d-1 for digit d
+    public int candidates(int x, int y){
+        return ~used(x, y) & ((1 << size) - 1);
+    }
 
-        return true; // True = okay to place
+    // Every cell is filled, and set never allows a clash, so the board is solved
+    public boolean isSolved(){
+        return filled == size * size;
     }
 
+    // The returned array must not be written to directly, use set so the masks stay in step
     public int[][] getBoard(){
         return board;
     }
 
     public void setBoard(int[][] b){
         board = b;
+        size = b.length;
+        boxSize = (int) Math.round(Math.sqrt(size));
+
+        // Rebuild the masks from the new board
+        rowMasks = new int[size];
+        colMasks = new int[size];
+        boxMasks = new int[size];
+        filled = 0;
+        given = new boolean[size * size];
+        // Every cell needs drawing again
+        dirty = new long[(size * size + 63) >>> 6];
+        Arrays.fill(dirty, -1L);
+        anyDirty = true;
+        for(int i = 0; i < size; i++){
+            for(int j = 0; j < size; j++){
+                if(board[i][j] != 0){
+                    given[i * size + j] = true;
+                    int bit = 1 << (board[i][j] - 1);
+                    rowMasks[i] |= bit;
+                    colMasks[j] |= bit;
+                    boxMasks[box(i, j)] |= bit;
+                    filled++;
+                }
+            }
+        }
     }
-}
 
+    public int getSize(){
+        return size;
+    }
+
+    // The cell was part of the puzzle and can't be changed by the player
+    public boolean isGiven(int x, int y){
+        return given[x * size + y];
+    }
+
+    // The cell changed since clearDirty was last called
+    public boolean isDirty(int x, int y){
+        int i = x * size + y;
+        return (dirty[i >>> 6] & (1L << i)) != 0;
+    }
+
+    public boolean hasDirty(){
+        return anyDirty;
+    }
+
+    public void clearDirty(){
+        Arrays.fill(dirty, 0);
+        anyDirty = false;
+    }
+
+    private void markDirty(int x, int y){
+        int i = x * size + y;
+        dirty[i >>> 6] |= 1L << i;
+        anyDirty = true;
+    }
+
+    // Digits taken by the other cells of this cell's row, column and box
+    private int used(int x, int y){
+        int used = rowMasks[x] | colMasks[y] | boxMasks[box(x, y)];
+        if(board[x][y] != 0)
+            used &= ~(1 << (board[x][y] - 1)); // The cell's own digit does not block itself
+        return used;
+    }
+
+    private int box(int x, int y){
+        return (x / boxSize) * boxSize + y / boxSize;
+    }
+}
@@ -0,0 +1,414 @@
+package personal.logicpuzzles;
+
+// Grades a puzzle by solving it the way a person would, on candidate bitmasks,
+// always using the simplest technique that still makes progress
+public class SudokuGrader
+{
+    public enum Difficulty
+    {
+        EASY,   // Singles only
+        MEDIUM, // Needs locked candidates or pairs
+        HARD    // Needs an X-wing, or more than these techniques can do
+    }
+
+    public enum Technique
+    {
+        NAKED_SINGLE(1),
+        HIDDEN_SINGLE(2),
+        POINTING(5),
+        BOX_LINE(5),
+        NAKED_PAIR(8),
+        HIDDEN_PAIR(10),
+        X_WING(15);
+
+        private final int weight; // Score added each time the technique is used
+
+        Technique(int weight)
+        {
+            this.weight = weight;
+        }
+    }
+
+    // Added to the score when the techniques run out before the puzzle is solved
+    private static final int GUESS_PENALTY = 100;
+
+    public static class Grade
+    {
+        private final int[] counts = new int[Technique.values().length];
+        private int score;
+        private boolean solved;
+
+        public int getScore()
+        {
+            return score;
+        }
+
+        public int getCount(Technique technique)
+        {
+            return counts[technique.ordinal()];
+        }
+
+        // Whether the techniques alone solve the puzzle, without guessing
+        public boolean isSolved()
+        {
+            return solved;
+        }
+
+        public Difficulty getDifficulty()
+        {
+            if (!solved || counts[Technique.X_WING.ordinal()] > 0)
+                return Difficulty.HARD;
+            for (int t = Technique.POINTING.ordinal(); t < counts.length; t++)
+                if (counts[t] > 0)
+                    return Difficulty.MEDIUM;
+            return Difficulty.EASY;
+        }
+
+        private void use(Technique technique)
+        {
+            counts[technique.ordinal()]++;
+            score += technique.weight;
+        }
+    }
+
+    private final int size;
+    private final int cellCount;
+    private final int all;
+
+    // Cells of each row, then each column, then each box, and the three units of each cell
+    private final int[] units;
+    private final int[] unitsOf;
+
+    private final int[] candidates; // Digits still possible in each empty cell, 0 once filled
+    private int remaining;          // Empty cells left
+    private Grade grade;
+
+    public SudokuGrader()
+    {
+        this(3);
+    }
+
+    public SudokuGrader(int boxSize)
+    {
+        size = boxSize * boxSize;
+        cellCount = size * size;
+        all = (1 << size) - 1;
+
+        units = new int[3 * cellCount];
+        unitsOf = new int[3 * cellCount];
+        for (int cell = 0; cell < cellCount; cell++)
+        {
+            int row = cell / size;
+            int col = cell % size;
+            int box = (row / boxSize) * boxSize + col / boxSize;
+            int inBox = (row % boxSize) * boxSize + col % boxSize;
+            units[row * size + col] = cell;
+            units[(size + col) * size + row] = cell;
+            units[(2 * size + box) * size + inBox] = cell;
+            unitsOf[cell * 3] = row;
+            unitsOf[cell * 3 + 1] = size + col;
+            unitsOf[cell * 3 + 2] = 2 * size + box;
+        }
+
+        candidates = new int[cellCount];
+    }
+
+    public Grade grade(int[][] board)
+    {
+        grade = new Grade();
+        remaining = cellCount;
+        for (int cell = 0; cell < cellCount; cell++)
+            candidates[cell] = all;
+        for (int cell = 0; cell < cellCount; cell++)
+        {
+            int value = board[cell / size][cell % size];
+            if (value != 0)
+                place(cell, 1 << (value - 1));
+        }
+
+        // Restart from the simplest technique after every step that made progress
+        while (remaining > 0)
+        {
+            if (nakedSingle() || hiddenSingle() || pointing() || boxLine()
+                    || nakedPair() || hiddenPair() || xWing())
+                continue;
+            break;
+        }
+
+        grade.solved = remaining == 0;
+        if (!grade.solved)
+            grade.score += GUESS_PENALTY;
+        return grade;
+    }
+
+    // A cell with one candidate left
+    private boolean nakedSingle()
+    {
+        boolean progress = false;
+        for (int cell = 0; cell < cellCount; cell++)
+        {
+            int c = candidates[cell];
+            if (c != 0 && (c & (c - 1)) == 0)
+            {
+                place(cell, c);
+                grade.use(Technique.NAKED_SINGLE);
+                progress = true;
+            }
+        }
+        return progress;
+    }
+
+    // A digit with one place left in a row, column or box
+    private boolean hiddenSingle()
+    {
+        for (int unit = 0; unit < 3 * size; unit++)
+        {
+            int once = 0;
+            int twice = 0;
+            for (int k = unit * size; k < (unit + 1) * size; k++)
+            {
+                int c = candidates[units[k]];
+                twice |= once & c;
+                once |= c;
+            }
+
+            int hidden = once & ~twice;
+            if (hidden == 0)
+                continue;
+            int bit = Integer.lowestOneBit(hidden);
+            for (int k = unit * size; k < (unit + 1) * size; k++)
+                if ((candidates[units[k]] & bit) != 0)
+                {
+                    place(units[k], bit);
+                    grade.use(Technique.HIDDEN_SINGLE);
+                    return true;
+                }
+        }
+        return false;
+    }
+
+    // A digit confined to one row or column inside a box can go nowhere else in that line
+    private boolean pointing()
+    {
+        for (int box = 0; box < size; box++)
+        {
+            int boxUnit = 2 * size + box;
+            for (int bit = 1; bit <= all; bit <<= 1)
+            {
+                int line = lineOfAll(boxUnit, bit);
+                if (line >= 0 && eliminate(line, bit, boxUnit))
+                {
+                    grade.use(Technique.POINTING);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // A digit confined to one box inside a row or column can go nowhere else in that box
+    private boolean boxLine()
+    {
+        for (int line = 0; line < 2 * size; line++)
+            for (int bit = 1; bit <= all; bit <<= 1)
+            {
+                int boxUnit = -1;
+                boolean confined = true;
+                for (int k = line * size; k < (line + 1) * size && confined; k++)
+                {
+                    int cell = units[k];
+                    if ((candidates[cell] & bit) == 0)
+                        continue;
+                    int box = unitsOf[cell * 3 + 2];
+                    if (boxUnit == -1)
+                        boxUnit = box;
+                    else if (box != boxUnit)
+                        confined = false;
+                }
+                if (confined && boxUnit >= 0 && eliminate(boxUnit, bit, line))
+                {
+                    grade.use(Technique.BOX_LINE);
+                    return true;
+                }
+            }
+        return false;
+    }
+
+    // Two cells of a unit with the same two candidates take both digits
+    private boolean nakedPair()
+    {
+        for (int unit = 0; unit < 3 * size; unit++)
+            for (int i = unit * size; i < (unit + 1) * size; i++)
+            {
+                int pair = candidates[units[i]];
+                if (Integer.bitCount(pair) != 2)
+                    continue;
+                for (int j = i + 1; j < (unit + 1) * size; j++)
+                    if (candidates[units[j]] == pair)
+                    {
+                        boolean progress = false;
+                        for (int k = unit * size; k < (unit + 1) * size; k++)
+                        {
+                            int cell = units[k];
+                            if (k != i && k != j && (candidates[cell] & pair) != 0)
+                            {
+                                candidates[cell] &= ~pair;
+                                progress = true;
+                            }
+                        }
+                        if (progress)
+                        {
+                            grade.use(Technique.NAKED_PAIR);
+                            return true;
+                        }
+                    }
+            }
+        return false;
+    }
+
+    // Two digits that fit in the same two cells of a unit, and nowhere else, fill those cells
+    private boolean hiddenPair()
+    {
+        for (int unit = 0; unit < 3 * size; unit++)
+            for (int first = 1; first <= all; first <<= 1)
+            {
+                int places = placesOf(unit, first);
+                if (Integer.bitCount(places) != 2)
+                    continue;
+                for (int second = first << 1; second <= all; second <<= 1)
+                {
+                    if (placesOf(unit, second) != places)
+                        continue;
+
+                    int pair = first | second;
+                    boolean progress = false;
+                    for (int k = 0; k < size; k++)
+                    {
+                        int cell = units[unit * size + k];
+                        if ((places & (1 << k)) != 0 && candidates[cell] != pair)
+                        {
+                            candidates[cell] = pair;
+                            progress = true;
+                        }
+                    }
+                    if (progress)
+                    {
+                        grade.use(Technique.HIDDEN_PAIR);
+                        return true;
+                    }
+                }
+            }
+        return false;
+    }
+
+    // A digit that fits in the same two columns of two rows is taken from the rest of
+    // those columns, and the same with rows and columns swapped
+    private boolean xWing()
+    {
+        for (int base = 0; base <= size; base += size)
+        {
+            int cover = size - base; // Columns for row bases, rows for column bases
+            for (int bit = 1; bit <= all; bit <<= 1)
+                for (int a = base; a < base + size; a++)
+                {
+                    int places = placesOf(a, bit);
+                    if (Integer.bitCount(places) != 2)
+                        continue;
+                    for (int b = a + 1; b < base + size; b++)
+                    {
+                        if (placesOf(b, bit) != places)
+                            continue;
+
+                        boolean progress = false;
+                        for (int p = places; p != 0; p &= p - 1)
+                        {
+                            int line = cover + Integer.numberOfTrailingZeros(p);
+                            for (int k = line * size; k < (line + 1) * size; k++)
+                            {
+                                int cell = units[k];
+                                int own = unitsOf[cell * 3 + (base == 0 ? 0 : 1)];
+                                if (own != a && own != b && (candidates[cell] & bit) != 0)
+                                {
+                                    candidates[cell] &= ~bit;
+                                    progress = true;
+                                }
+                            }
+                        }
+                        if (progress)
+                        {
+                            grade.use(Technique.X_WING);
+                            return true;
+                        }
+                    }
+                }
+        }
+        return false;
+    }
+
+    // Positions within a unit where a digit is still possible, one bit per position
+    private int placesOf(int unit, int bit)
+    {
+        int places = 0;
+        for (int k = 0; k < size; k++)
+            if ((candidates[units[unit * size + k]] & bit) != 0)
+                places |= 1 << k;
+        return places;
+    }
+
+    // The row or column unit holding every candidate of a digit in a box, or -1
+    private int lineOfAll(int boxUnit, int bit)
+    {
+        int row = -1;
+        int col = -1;
+        boolean sameRow = true;
+        boolean sameCol = true;
+        for (int k = boxUnit * size; k < (boxUnit + 1) * size; k++)
+        {
+            int cell = units[k];
+            if ((candidates[cell] & bit) == 0)
+                continue;
+            int r = unitsOf[cell * 3];
+            int c = unitsOf[cell * 3 + 1];
+            if (row == -1)
+            {
+                row = r;
+                col = c;
+            }
+            sameRow &= r == row;
+            sameCol &= c == col;
+        }
+        if (row == -1)
+            return -1;
+        return sameRow ? row : sameCol ? col : -1;
+    }
+
+    // Remove a digit from the cells of unit that are not also in keep, returns whether any changed
+    private boolean eliminate(int unit, int bit, int keep)
+    {
+        boolean progress = false;
+        for (int k = unit * size; k < (unit + 1) * size; k++)
+        {
+            int cell = units[k];
+            if ((candidates[cell] & bit) == 0)
+                continue;
+            int base = cell * 3;
+            if (unitsOf[base] == keep || unitsOf[base + 1] == keep || unitsOf[base + 2] == keep)
+                continue;
+            candidates[cell] &= ~bit;
+            progress = true;
+        }
+        return progress;
+    }
+
+    private void place(int cell, int bit)
+    {
+        candidates[cell] = 0;
+        remaining--;
+        for (int u = cell * 3; u < cell * 3 + 3; u++)
+        {
+            int unit = unitsOf[u];
+            for (int k = unit * size; k < (unit + 1) * size; k++)
+                candidates[units[k]] &= ~bit;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package personal.logicpuzzles;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+// Cancelling a queue has to stop its generations, not just forget them: a generator
+// that ignores the interrupt keeps its worker thread busy and starves every other queue.
+public class PuzzleGenerationServiceTest
+{
+    private static final long STOP_MILLIS = 1000;
+
+    @Test(timeout = 10_000)
+    public void cancelStopsNonogramSolves() throws Exception
+    {
+        NonogramGenerator puzzle = new NonogramGenerator(15, 7L);
+        assertStopsOnCancel(() ->
+        {
+            NonogramSolver solver = new NonogramSolver(15);
+            while (true)
+                solver.countSolutions(puzzle, 2);
+        });
+    }
+
+    @Test(timeout = 10_000)
+    public void cancelStopsCryptogramSolves() throws Exception
+    {
+        String counts = "_THE 100\nTHE_ 100\n_AND 50\nAND_ 50\nING_ 40\n";
+        QuadgramTable table = QuadgramTable.load(new ByteArrayInputStream(counts.getBytes(StandardCharsets.US_ASCII)));
+        Cryptogram puzzle = new Cryptogram("The quick brown fox jumps over the lazy dog", "Nobody", 7L);
+        assertStopsOnCancel(() ->
+        {
+            CryptogramSolver solver = new CryptogramSolver(table, 7L);
+            while (true)
+                solver.solve(puzzle.getCurrentNumbers());
+        });
+    }
+
+    // take() hands back null at once when nothing is ready, it never waits on the UI thread
+    @Test(timeout = 10_000)
+    public void takeDoesNotWait() throws Exception
+    {
+        PuzzleGenerationService service = new PuzzleGenerationService();
+        CountDownLatch release = new CountDownLatch(1);
+        try
+        {
+            PuzzleGenerationService.PuzzleQueue<Integer> queue = service.queue(() ->
+            {
+                release.await();
+                return 1;
+            });
+            long start = System.nanoTime();
+            assertEquals("nothing ready", null, queue.take());
+            assertTrue("took too long", System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(100));
+        }
+        finally
+        {
+            release.countDown();
+            service.shutdown();
+        }
+    }
+
+    // Start generations that never finish on their own, cancel the queue and wait for
+    // every one of them to leave the generator
+    private static void assertStopsOnCancel(Callable<Void> solveForever) throws Exception
+    {
+        PuzzleGenerationService service = new PuzzleGenerationService();
+        AtomicInteger running = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        try
+        {
+            PuzzleGenerationService.PuzzleQueue<Void> queue = service.queue(() ->
+            {
+                running.incrementAndGet();
+                started.countDown();
+                try
+                {
+                    return solveForever.call();
+                }
+                finally
+                {
+                    running.decrementAndGet();
+                }
+            });
+            assertTrue("generation started", started.await(5, TimeUnit.SECONDS));
+            queue.cancel();
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(STOP_MILLIS);
+            while (running.get() > 0 && System.nanoTime() - deadline < 0)
+                Thread.sleep(10);
+            assertEquals("generations still running", 0, running.get());
+        }
+        finally
+        {
+            service.shutdown();
+        }
+    }
+}
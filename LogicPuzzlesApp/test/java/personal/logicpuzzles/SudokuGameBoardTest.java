@@ -0,0 +1,105 @@
+package personal.logicpuzzles;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.SplittableRandom;
+
+import org.junit.Test;
+
+public class SudokuGameBoardTest
+{
+    private static final long SEED = 42;
+
+    // Clues can't be overwritten or cleared, whoever calls set
+    @Test
+    public void setLeavesGivenCellsAlone()
+    {
+        int[][] puzzle = new Sudoku(3, new SplittableRandom(SEED)).generateUnique();
+        SudokuGameBoard board = new SudokuGameBoard(puzzle);
+        int x = -1, y = -1;
+        for (int i = 0; i < 81 && x < 0; i++)
+            if (puzzle[i / 9][i % 9] != 0)
+            {
+                x = i / 9;
+                y = i % 9;
+            }
+        int clue = board.getBoard()[x][y];
+
+        assertFalse("clear a clue", board.set(0, x, y));
+        assertFalse("overwrite a clue", board.set(clue % 9 + 1, x, y));
+        assertEquals("clue kept", clue, board.getBoard()[x][y]);
+        // The clue's digit still blocks its row, as the masks were not touched
+        int other = (y + 1) % 9;
+        if (!board.isGiven(x, other))
+            assertFalse("digit still used in the row", board.check(clue, x, other));
+    }
+
+    // Filling every open cell with its solution digit solves the board, so the
+    // filled count was not thrown off by rejected writes to clues
+    @Test
+    public void rejectedWritesKeepTheCount()
+    {
+        Sudoku sudoku = new Sudoku(3, new SplittableRandom(SEED));
+        int[][] puzzle = sudoku.generateUnique();
+        int[][] solution = new int[9][9];
+        for (int i = 0; i < 9; i++)
+            solution[i] = puzzle[i].clone();
+        assertTrue(sudoku.solve(solution));
+
+        SudokuGameBoard board = new SudokuGameBoard(puzzle);
+        for (int x = 0; x < 9; x++)
+            for (int y = 0; y < 9; y++)
+                if (board.isGiven(x, y))
+                    assertFalse(board.set(0, x, y));
+                else
+                    assertTrue(board.set(solution[x][y], x, y));
+        assertTrue(board.isSolved());
+    }
+
+    // Retrieve with a 9x9 game open and a 16x16 save: the saved game comes back at its
+    // own size, clues and entries in place, and the open game is left alone
+    @Test
+    public void restoresASaveOfAnotherSize() throws Exception
+    {
+        SudokuGameBoard open = new SudokuGameBoard(new Sudoku(3, new SplittableRandom(SEED)).generateUnique());
+        int[][] openBefore = copy(open.getBoard());
+
+        Sudoku sudoku = new Sudoku(4, new SplittableRandom(SEED));
+        int[][] initial = sudoku.generateUnique();
+        int[][] solution = copy(initial);
+        assertTrue(sudoku.solve(solution));
+        int[][] current = copy(initial);
+        int entries = 0;
+        for (int i = 0; i < 256 && entries < 10; i++)
+            if (initial[i / 16][i % 16] == 0)
+            {
+                current[i / 16][i % 16] = solution[i / 16][i % 16];
+                entries++;
+            }
+        PuzzleSave save = PuzzleSave.fromBytes(new PuzzleSave(PuzzleSave.TYPE_SUDOKU, initial, current).toBytes());
+
+        SudokuGameBoard restored = SudokuGameBoard.restore(save.getInitial(), save.getCurrent());
+        assertEquals(16, restored.getSize());
+        for (int x = 0; x < 16; x++)
+            for (int y = 0; y < 16; y++)
+            {
+                assertEquals("cell " + x + "," + y, current[x][y], restored.getBoard()[x][y]);
+                assertEquals("given " + x + "," + y, initial[x][y] != 0, restored.isGiven(x, y));
+            }
+        // The save's initial board is not the one the player writes to
+        assertTrue(restored.getBoard() != save.getInitial());
+        for (int x = 0; x < 9; x++)
+            for (int y = 0; y < 9; y++)
+                assertEquals(openBefore[x][y], open.getBoard()[x][y]);
+    }
+
+    private static int[][] copy(int[][] board)
+    {
+        int[][] copy = new int[board.length][];
+        for (int i = 0; i < board.length; i++)
+            copy[i] = board[i].clone();
+        return copy;
+    }
+}
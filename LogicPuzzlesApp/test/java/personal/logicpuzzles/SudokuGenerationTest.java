@@ -0,0 +1,68 @@
+package personal.logicpuzzles;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+// Generation has to finish for every seed, not just on average: an unlucky shuffle
+// used to leave the search running for minutes on 16x16 and 25x25 boards.
+public class SudokuGenerationTest
+{
+    private static final int SEEDS = 300;
+
+    @Test(timeout = 60_000)
+    public void generates16x16ForEverySeed()
+    {
+        generateSeeds(4, SEEDS);
+    }
+
+    @Test(timeout = 60_000)
+    public void generates25x25ForEverySeed()
+    {
+        generateSeeds(5, SEEDS);
+    }
+
+    @Test(timeout = 60_000)
+    public void uniquePuzzlesHaveOneSolution()
+    {
+        Sudoku sudoku = new Sudoku(4);
+        int[][] board = new int[16][16];
+        for (long seed = 0; seed < 50; seed++)
+            assertEquals("seed " + seed, 1, sudoku.countSolutions(sudoku.generateUnique(seed, board), 2));
+    }
+
+    private static void generateSeeds(int boxSize, int seeds)
+    {
+        Sudoku sudoku = new Sudoku(boxSize);
+        int size = boxSize * boxSize;
+        int[][] board = new int[size][size];
+        for (long seed = 0; seed < seeds; seed++)
+            assertNoClashes("seed " + seed, sudoku.generate(seed, board), boxSize);
+    }
+
+    // No digit twice in a row, column or box, and every clue a digit of the board
+    private static void assertNoClashes(String message, int[][] board, int boxSize)
+    {
+        int size = board.length;
+        for (int i = 0; i < size; i++)
+        {
+            int row = 0, col = 0, box = 0;
+            for (int j = 0; j < size; j++)
+            {
+                row = add(message, row, board[i][j], size);
+                col = add(message, col, board[j][i], size);
+                box = add(message, box, board[(i / boxSize) * boxSize + j / boxSize][(i % boxSize) * boxSize + j % boxSize], size);
+            }
+        }
+    }
+
+    private static int add(String message, int seen, int value, int size)
+    {
+        assertTrue(message, value >= 0 && value <= size);
+        if (value == 0)
+            return seen;
+        assertTrue(message, (seen & 1 << value) == 0);
+        return seen | 1 << value;
+    }
+}
@@ -0,0 +1,184 @@
+package personal.logicpuzzles;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// Counts the quadgrams QuadgramTable reads from plain English text, e.g. public domain
+// books. Run from LogicPuzzlesApp with:
+//   java personal.logicpuzzles.QuadgramCounter [--min count] [--source text] book.txt... > main/res/raw/quadgrams.txt
+// Only prose is counted: sentences of plain words from a capital letter to . ! or ?.
+// A sentence is dropped at the first token that isn't a plain word, such as a file
+// name, an address, an identifier, a number or a word in capitals, so code and markup
+// in the text don't skew the table towards "FILE" or "_COM". Each word adds its
+// quadgrams with a word break at both ends, "_THE" and "THE_" included.
+public class QuadgramCounter {
+
+    private static final int MIN_WORDS = 4; // Shorter sentences are mostly headings and labels
+    private static final int MAX_WORD = 20;
+    private static final int DEFAULT_MIN_COUNT = 3; // Rarer quadgrams are left to the unseen score
+
+    private final long[] counts = new long[QuadgramTable.SIZE];
+    private final List<String> sentence = new ArrayList<>();
+    private long sentences;
+    private long words;
+
+    // Read one text file
+    public void count(String file) throws IOException {
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.trim().isEmpty()) {
+                    // A sentence doesn't run over a blank line
+                    sentence.clear();
+                    continue;
+                }
+                for (String token : line.trim().split("\\s+")) {
+                    accept(token);
+                }
+            }
+        }
+        sentence.clear();
+    }
+
+    private void accept(String token) {
+        // Strip quotes and brackets around the word, then the punctuation after it
+        int start = 0;
+        int end = token.length();
+        while (start < end && "\"'(\u2018\u201C".indexOf(token.charAt(start)) >= 0) {
+            start++;
+        }
+        while (end > start && "\"')\u2019\u201D".indexOf(token.charAt(end - 1)) >= 0) {
+            end--;
+        }
+        boolean last = end > start && ".!?".indexOf(token.charAt(end - 1)) >= 0;
+        while (end > start && ",;:.!?".indexOf(token.charAt(end - 1)) >= 0) {
+            end--;
+        }
+        String word = token.substring(start, end).replace('\u2019', '\'');
+
+        if (!isPlainWord(word, sentence.isEmpty())) {
+            sentence.clear();
+            return;
+        }
+        sentence.add(word);
+        if (last) {
+            if (sentence.size() >= MIN_WORDS) {
+                for (String w : sentence) {
+                    countWord(w);
+                }
+                sentences++;
+                words += sentence.size();
+            }
+            sentence.clear();
+        }
+    }
+
+    // Lower case letters, with a capital first letter allowed and required at the start
+    // of a sentence, and apostrophes inside, as in "don't". "I" and "A" are words too.
+    private static boolean isPlainWord(String word, boolean first) {
+        if (word.isEmpty() || word.length() > MAX_WORD) {
+            return false;
+        }
+        char head = word.charAt(0);
+        boolean capital = head >= 'A' && head <= 'Z';
+        if (!capital && (first || head < 'a' || head > 'z')) {
+            return false;
+        }
+        for (int i = 1; i < word.length(); i++) {
+            char c = word.charAt(i);
+            if ((c < 'a' || c > 'z') && (c != '\'' || i == word.length() - 1)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void countWord(String word) {
+        int a = QuadgramTable.BREAK;
+        int b = -1;
+        int c = -1;
+        int seen = 1;
+        for (int i = 0; i <= word.length(); i++) {
+            int letter;
+            if (i == word.length()) {
+                letter = QuadgramTable.BREAK;
+            } else {
+                char ch = Character.toUpperCase(word.charAt(i));
+                if (ch < 'A' || ch > 'Z') {
+                    continue; // Apostrophes are not in puzzles' letters
+                }
+                letter = ch - 'A';
+            }
+            if (seen >= 3) {
+                counts[((a * QuadgramTable.SYMBOLS + b) * QuadgramTable.SYMBOLS + c) * QuadgramTable.SYMBOLS + letter]++;
+            }
+            if (seen == 1) {
+                b = letter;
+            } else if (seen == 2) {
+                c = letter;
+            } else {
+                a = b;
+                b = c;
+                c = letter;
+            }
+            seen++;
+        }
+    }
+
+    // Write "QUAD count" lines, most common first, after comment lines naming the source
+    public void write(PrintStream out, int minCount, String source) {
+        out.println("# Quadgram counts for QuadgramTable, _ is a word break");
+        out.println("# Counted by QuadgramCounter from " + sentences + " sentences, " + words + " words of " + source);
+        List<long[]> entries = new ArrayList<>();
+        for (int code = 0; code < counts.length; code++) {
+            if (counts[code] >= minCount) {
+                entries.add(new long[]{counts[code], code});
+            }
+        }
+        entries.sort((x, y) -> x[0] != y[0] ? Long.compare(y[0], x[0]) : Long.compare(x[1], y[1]));
+        char[] quad = new char[4];
+        for (long[] entry : entries) {
+            int code = (int) entry[1];
+            for (int i = 3; i >= 0; i--) {
+                int letter = code % QuadgramTable.SYMBOLS;
+                quad[i] = letter == QuadgramTable.BREAK ? '_' : (char) ('A' + letter);
+                code /= QuadgramTable.SYMBOLS;
+            }
+            out.print(quad);
+            out.print(' ');
+            out.println(entry[0]);
+        }
+        out.flush();
+    }
+
+    public static void main(String[] args) throws IOException {
+        int minCount = DEFAULT_MIN_COUNT;
+        String source = null;
+        List<String> paths = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--min") && i + 1 < args.length) {
+                minCount = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--source") && i + 1 < args.length) {
+                source = args[++i];
+            } else {
+                paths.add(args[i]);
+            }
+        }
+        if (paths.isEmpty()) {
+            System.err.println("Usage: QuadgramCounter [--min count] [--source text] <text>... > quadgrams.txt");
+            System.exit(2);
+        }
+
+        QuadgramCounter counter = new QuadgramCounter();
+        for (String path : paths) {
+            counter.count(path);
+        }
+        counter.write(System.out, minCount, source != null ? source : paths.size() + " files");
+    }
+}
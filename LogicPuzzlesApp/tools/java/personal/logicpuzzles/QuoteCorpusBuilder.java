@@ -0,0 +1,307 @@
+package personal.logicpuzzles;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+
+// Builds the binary quote corpus QuoteCorpus reads. Run from LogicPuzzlesApp with:
+//   java personal.logicpuzzles.QuoteCorpusBuilder --quadgrams main/res/raw/quadgrams.txt corpus/quotes.txt main/res/raw/quotes.bin
+// The source has one quote per line, "quote<TAB>person"; blank lines and lines starting
+// with # are skipped. Quotes that only differ in case, spacing or punctuation are
+// duplicates, and the first one is kept. With --quadgrams every quote is rated with
+// CryptogramSolver.rate, so the app doesn't have to solve it before showing it; quotes
+// the solver can't crack are kept, as the app passes them over by their rating.
+//
+// Records are spilled to a temporary file as they are added, so memory stays at a
+// couple of longs per quote however much text goes in: a sort key and a spill offset,
+// and a hash of the quote for spotting duplicates. write sorts the keys and copies
+// the records out of the spill in corpus order.
+public class QuoteCorpusBuilder implements Closeable {
+
+    private static final int MAX_BYTES = 0xFFFF; // Longest quote or person the format holds
+    private static final long RATING_SEED = 1;
+
+    private final File spillFile;
+    private final DataOutputStream spill;
+    private long spillSize;
+
+    // Per record, in the order added: (cell << 48) | (letters << 32) | record number,
+    // and where the record starts in the spill, with the spill size at the end
+    private long[] keys = new long[1024];
+    private long[] spillOffsets = new long[1025];
+    private int count;
+
+    private final LongHashSet seen = new LongHashSet();
+    private int maxLetters;
+
+    public QuoteCorpusBuilder() throws IOException {
+        spillFile = File.createTempFile("quotes", ".spill");
+        spillFile.deleteOnExit();
+        spill = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(spillFile), 1 << 16));
+    }
+
+    // Add a quote, returning false if it is a duplicate or can't be stored
+    public boolean add(String quote, String person) throws IOException {
+        return markSeen(quote) && append(quote, person, -1);
+    }
+
+    // Mark a quote seen, returning false if it, or one with the same letters and spaces,
+    // was seen before. Lets a caller skip duplicates before doing expensive work on them.
+    public boolean markSeen(String quote) {
+        // FNV-1a over the letters, with a single space between words
+        long hash = 0xcbf29ce484222325L;
+        boolean space = false;
+        boolean any = false;
+        for (int i = 0; i < quote.length(); i++) {
+            char c = Character.toUpperCase(quote.charAt(i));
+            if (c >= 'A' && c <= 'Z') {
+                if (space && any) {
+                    hash = (hash ^ ' ') * 0x100000001b3L;
+                }
+                hash = (hash ^ c) * 0x100000001b3L;
+                space = false;
+                any = true;
+            } else if (Character.isWhitespace(c)) {
+                space = true;
+            }
+        }
+        return seen.add(hash);
+    }
+
+    // Add a quote without checking for duplicates, returning false if it can't be stored.
+    // rating is the percent of letters the solver gets right, or -1 if it wasn't rated.
+    public boolean append(String quote, String person, int rating) throws IOException {
+        if (rating < -1 || rating > 100) {
+            throw new IllegalArgumentException("Rating must be -1 or 0 to 100: " + rating);
+        }
+        quote = quote.trim().replaceAll("\\s+", " ");
+        person = person.trim();
+        byte[] quoteBytes = quote.getBytes(StandardCharsets.UTF_8);
+        byte[] personBytes = person.getBytes(StandardCharsets.UTF_8);
+        if (quoteBytes.length > MAX_BYTES || personBytes.length > MAX_BYTES) {
+            return false;
+        }
+
+        boolean[] present = new boolean[26];
+        int letters = 0;
+        int distinct = 0;
+        for (char c : quote.toUpperCase(Locale.ROOT).toCharArray()) {
+            if (c >= 'A' && c <= 'Z') {
+                letters++;
+                if (!present[c - 'A']) {
+                    present[c - 'A'] = true;
+                    distinct++;
+                }
+            }
+        }
+        // The cell has to fit the top of a sort key, which allows about 12000 letters
+        long cell = (long) QuoteCorpus.bucketOf(letters) * QuoteCorpus.CELLS_PER_BUCKET + distinct;
+        if (letters == 0 || cell >= 1 << 15) {
+            return false;
+        }
+
+        if (count == keys.length) {
+            keys = Arrays.copyOf(keys, count * 2);
+            spillOffsets = Arrays.copyOf(spillOffsets, count * 2 + 1);
+        }
+        keys[count] = cell << 48 | (long) letters << 32 | count;
+        spillOffsets[count] = spillSize;
+        count++;
+        maxLetters = Math.max(maxLetters, letters);
+
+        spill.writeShort(letters);
+        spill.writeByte(distinct);
+        spill.writeByte(rating < 0 ? QuoteCorpus.UNRATED : rating);
+        spill.writeShort(quoteBytes.length);
+        spill.write(quoteBytes);
+        spill.writeShort(personBytes.length);
+        spill.write(personBytes);
+        spillSize += 8 + quoteBytes.length + personBytes.length;
+        return true;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public void write(OutputStream out) throws IOException {
+        spill.flush();
+        spillOffsets[count] = spillSize;
+        long[] sorted = Arrays.copyOf(keys, count);
+        Arrays.sort(sorted);
+        int buckets = count == 0 ? 0 : QuoteCorpus.bucketOf(maxLetters) + 1;
+        int cells = buckets * QuoteCorpus.CELLS_PER_BUCKET;
+        if (spillSize > Integer.MAX_VALUE) {
+            throw new IOException("Quote corpus over 2GB");
+        }
+
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(QuoteCorpus.MAGIC);
+        data.writeInt(QuoteCorpus.VERSION);
+        data.writeInt(count);
+        data.writeInt(buckets);
+
+        // First record of every cell
+        int cell = 0;
+        for (int i = 0; i < count; i++) {
+            int recordCell = (int) (sorted[i] >>> 48);
+            while (cell <= recordCell) {
+                data.writeInt(i);
+                cell++;
+            }
+        }
+        while (cell <= cells) {
+            data.writeInt(count);
+            cell++;
+        }
+
+        // Offsets of the records in sorted order
+        int offset = 0;
+        for (int i = 0; i < count; i++) {
+            data.writeInt(offset);
+            offset += recordLength((int) sorted[i]);
+        }
+        data.writeInt(offset);
+
+        // The records, read back from the spill
+        try (RandomAccessFile in = new RandomAccessFile(spillFile, "r")) {
+            FileChannel channel = in.getChannel();
+            ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+            for (int i = 0; i < count; i++) {
+                int record = (int) sorted[i];
+                int length = recordLength(record);
+                if (buffer.capacity() < length) {
+                    buffer = ByteBuffer.allocate(length);
+                }
+                buffer.clear().limit(length);
+                long position = spillOffsets[record];
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, position + buffer.position()) < 0) {
+                        throw new IOException("Quote spill truncated");
+                    }
+                }
+                data.write(buffer.array(), 0, length);
+            }
+        }
+        data.flush();
+    }
+
+    private int recordLength(int record) {
+        return (int) (spillOffsets[record + 1] - spillOffsets[record]);
+    }
+
+    // Drop the spill file
+    @Override
+    public void close() throws IOException {
+        spill.close();
+        if (!spillFile.delete() && spillFile.exists()) {
+            throw new IOException("Could not delete " + spillFile);
+        }
+    }
+
+    // Open addressing set of nonzero-hashed longs, for duplicate hashes
+    private static class LongHashSet {
+        private long[] slots = new long[1 << 10];
+        private boolean hasZero;
+        private int size;
+
+        boolean add(long value) {
+            if (value == 0) {
+                boolean added = !hasZero;
+                hasZero = true;
+                return added;
+            }
+            if (2 * (size + 1) > slots.length) {
+                grow();
+            }
+            int mask = slots.length - 1;
+            int slot = (int) (value ^ value >>> 32) & mask;
+            while (slots[slot] != 0) {
+                if (slots[slot] == value) {
+                    return false;
+                }
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = value;
+            size++;
+            return true;
+        }
+
+        private void grow() {
+            long[] old = slots;
+            slots = new long[old.length * 2];
+            size = 0;
+            for (long value : old) {
+                if (value != 0) {
+                    add(value);
+                }
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        String quadgrams = null;
+        int first = 0;
+        if (args.length == 4 && args[0].equals("--quadgrams")) {
+            quadgrams = args[1];
+            first = 2;
+        } else if (args.length != 2) {
+            System.err.println("Usage: QuoteCorpusBuilder [--quadgrams file] <quotes.txt> <quotes.bin>");
+            System.exit(2);
+        }
+
+        // Seeded, so the same source and table always build the same file
+        CryptogramSolver solver = null;
+        if (quadgrams != null) {
+            try (InputStream in = new FileInputStream(quadgrams)) {
+                solver = new CryptogramSolver(QuadgramTable.load(in), RATING_SEED);
+            }
+        }
+        try (QuoteCorpusBuilder builder = new QuoteCorpusBuilder()) {
+            int lines = 0;
+            int solvable = 0;
+            try (BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(args[first]), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    if (line.isEmpty() || line.startsWith("#")) {
+                        continue;
+                    }
+                    lines++;
+                    int tab = line.indexOf('\t');
+                    String quote = tab < 0 ? line : line.substring(0, tab);
+                    String person = tab < 0 ? "" : line.substring(tab + 1);
+                    if (!builder.markSeen(quote)) {
+                        continue;
+                    }
+                    int rating = -1;
+                    if (solver != null) {
+                        rating = (int) Math.round(solver.rate(new Cryptogram(quote, person, RATING_SEED + lines)) * 100);
+                        if (rating >= CryptogramSolver.SOLVABLE_FRACTION * 100) {
+                            solvable++;
+                        }
+                    }
+                    builder.append(quote, person, rating);
+                }
+            }
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(args[first + 1]))) {
+                builder.write(out);
+            }
+            System.out.println(builder.size() + " quotes from " + lines + " lines, " + (lines - builder.size()) + " dropped"
+                    + (solver != null ? ", " + solvable + " solvable" : ""));
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package personal.logicpuzzles;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Turns plain text, e.g. public domain books, into a quote corpus. Run from
+// LogicPuzzlesApp with:
+//   java personal.logicpuzzles.QuoteIngester [--quadgrams file] [--person name] book.txt... quotes.bin
+// Each file is streamed through a fixed size NIO buffer and split into sentences as it
+// goes. Sentences of a playable length, in plain letters and punctuation and with
+// enough different letters, are deduplicated and handed to a pool of solvers; the
+// ones the solver can crack go into the corpus with their rating. The work queue is
+// bounded, so the reader waits for the solvers rather than piling up sentences, and
+// QuoteCorpusBuilder spills kept quotes to disk, so memory does not grow with the size
+// of the text.
+public class QuoteIngester implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int MAX_SENTENCE_CHARS = 400; // Longer runs are skipped up to the next sentence
+    private static final int MAX_LETTERS = 100; // Same as the app picks
+    private static final int MIN_DISTINCT = 10; // Fewer different letters give too little to go on
+    private static final int QUEUE_PER_THREAD = 64;
+    private static final long PROGRESS_EVERY = 100000;
+
+    private final QuadgramTable table;
+    private final QuoteCorpusBuilder builder;
+    private final ThreadPoolExecutor solvers;
+    private final ThreadLocal<CryptogramSolver> solver;
+
+    private final StringBuilder sentence = new StringBuilder(MAX_SENTENCE_CHARS);
+    private boolean overflow; // The current sentence is too long and is being skipped
+    private boolean pendingSpace;
+    private boolean terminated; // Last character was . ! or ?, or a closing quote after one
+    private int newlines; // Newlines since the last character that wasn't whitespace
+    private String person = "";
+
+    private long sentences;
+    private long candidates;
+    private long duplicates;
+    private final AtomicLong kept = new AtomicLong();
+    private final AtomicReference<Exception> failure = new AtomicReference<>(); // First error on a solver thread
+
+    public QuoteIngester(QuadgramTable table, QuoteCorpusBuilder builder) {
+        this.table = table;
+        this.builder = builder;
+        int threads = Runtime.getRuntime().availableProcessors();
+        // A full queue makes the reader rate the sentence itself, which holds it back
+        solvers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * QUEUE_PER_THREAD), new ThreadPoolExecutor.CallerRunsPolicy());
+        solver = ThreadLocal.withInitial(() -> new CryptogramSolver(this.table));
+    }
+
+    // Read one text file; its sentences are credited to person
+    public void ingest(Path file, String person) throws IOException {
+        this.person = person;
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        ByteBuffer bytes = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            boolean end = false;
+            while (!end) {
+                end = channel.read(bytes) < 0;
+                bytes.flip();
+                decoder.decode(bytes, chars, end);
+                if (end) {
+                    decoder.flush(chars);
+                }
+                chars.flip();
+                while (chars.hasRemaining()) {
+                    accept(chars.get());
+                }
+                chars.clear();
+                bytes.compact();
+                checkFailure();
+            }
+        }
+        endSentence();
+    }
+
+    // Wait for the solvers, then write the corpus
+    public void finish(OutputStream out) throws IOException, InterruptedException {
+        solvers.shutdown();
+        solvers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        checkFailure();
+        synchronized (builder) {
+            builder.write(out);
+        }
+    }
+
+    // Sentence splitting, a character at a time. A sentence ends at whitespace after
+    // . ! or ? (and any closing quotes), or at a blank line.
+    private void accept(char c) {
+        if (c == '\n') {
+            if (++newlines >= 2) {
+                endSentence();
+            }
+            pendingSpace = true;
+            return;
+        }
+        if (Character.isWhitespace(c)) {
+            pendingSpace = true;
+            return;
+        }
+        newlines = 0;
+        if (pendingSpace && terminated) {
+            endSentence();
+        }
+        if (c == '.' || c == '!' || c == '?') {
+            terminated = true;
+        } else if (c != '"' && c != '\'' && c != '\u201D' && c != '\u2019' && c != ')') {
+            terminated = false;
+        }
+        if (overflow) {
+            pendingSpace = false;
+            return;
+        }
+        if (pendingSpace && sentence.length() > 0) {
+            sentence.append(' ');
+        }
+        pendingSpace = false;
+        if (sentence.length() >= MAX_SENTENCE_CHARS) {
+            overflow = true;
+            return;
+        }
+        sentence.append(c);
+    }
+
+    private void endSentence() {
+        if (!overflow && sentence.length() > 0) {
+            sentences++;
+            String quote = clean(sentence);
+            if (quote != null) {
+                candidates++;
+                if (!builder.markSeen(quote)) {
+                    duplicates++;
+                } else {
+                    String credit = person;
+                    solvers.execute(() -> rate(quote, credit));
+                }
+            }
+            if (sentences % PROGRESS_EVERY == 0) {
+                System.err.println(sentences + " sentences, " + candidates + " candidates, "
+                        + duplicates + " duplicates, " + kept.get() + " kept");
+            }
+        }
+        sentence.setLength(0);
+        overflow = false;
+        pendingSpace = false;
+        terminated = false;
+    }
+
+    // The sentence as a quote, or null if it doesn't make a good puzzle. Typographic
+    // quotes and apostrophes become plain ones, quotes around the sentence are dropped,
+    // and anything other than letters, spaces and common punctuation rejects it, as
+    // does a missing full stop.
+    private static String clean(CharSequence text) {
+        StringBuilder quote = new StringBuilder(text.length());
+        boolean[] present = new boolean[26];
+        int letters = 0;
+        int distinct = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\u2018' || c == '\u2019') {
+                c = '\'';
+            } else if (c == '\u201C' || c == '\u201D') {
+                c = '"';
+            } else if (c == '\u2014' || c == '\u2013') {
+                c = '-';
+            }
+            char upper = Character.toUpperCase(c);
+            if (upper >= 'A' && upper <= 'Z' && c < 128) {
+                letters++;
+                if (!present[upper - 'A']) {
+                    present[upper - 'A'] = true;
+                    distinct++;
+                }
+            } else if (",;:'.!?- \"".indexOf(c) < 0) {
+                return null;
+            }
+            quote.append(c);
+        }
+        if (letters < CryptogramSolver.MIN_LETTERS || letters > MAX_LETTERS || distinct < MIN_DISTINCT) {
+            return null;
+        }
+
+        // Drop quote marks around the sentence and inside it, keep apostrophes
+        int start = 0;
+        int end = quote.length();
+        while (start < end && (quote.charAt(start) == '"' || quote.charAt(start) == '\'')) {
+            start++;
+        }
+        while (end > start && (quote.charAt(end - 1) == '"' || quote.charAt(end - 1) == '\'')) {
+            end--;
+        }
+        String result = quote.substring(start, end).replace("\"", "").trim();
+
+        // A whole sentence: a capital letter to . ! or ?, which also rules out headings
+        if (result.isEmpty() || !Character.isUpperCase(result.charAt(0))
+                || ".!?".indexOf(result.charAt(result.length() - 1)) < 0 || result.contains("--")) {
+            return null;
+        }
+        return result;
+    }
+
+    // On a solver thread: rate the quote, and keep it with its rating if a solve can crack
+    // it; clean has already checked it is long enough. An error is held for the reader
+    // and finish to throw, as the pool would only print it and go on.
+    private void rate(String quote, String credit) {
+        if (failure.get() != null) {
+            return;
+        }
+        try {
+            double rating = solver.get().rate(new Cryptogram(quote, credit));
+            if (rating >= CryptogramSolver.SOLVABLE_FRACTION) {
+                synchronized (builder) {
+                    if (builder.append(quote, credit, (int) Math.round(rating * 100))) {
+                        kept.incrementAndGet();
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            failure.compareAndSet(null, e);
+        }
+    }
+
+    // Stop the solver threads, which would keep the JVM alive after a failed ingest
+    @Override
+    public void close() {
+        solvers.shutdownNow();
+    }
+
+    private void checkFailure() throws IOException {
+        Exception e = failure.get();
+        if (e != null) {
+            solvers.shutdownNow();
+            throw new IOException("Rating quotes failed", e);
+        }
+    }
+
+    public long getSentences() {
+        return sentences;
+    }
+
+    public long getKept() {
+        return kept.get();
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String quadgrams = "main/res/raw/quadgrams.txt";
+        String person = null;
+        List<String> paths = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--quadgrams") && i + 1 < args.length) {
+                quadgrams = args[++i];
+            } else if (args[i].equals("--person") && i + 1 < args.length) {
+                person = args[++i];
+            } else {
+                paths.add(args[i]);
+            }
+        }
+        if (paths.size() < 2) {
+            System.err.println("Usage: QuoteIngester [--quadgrams file] [--person name] <text>... <quotes.bin>");
+            System.exit(2);
+        }
+
+        QuadgramTable table;
+        try (InputStream in = new FileInputStream(quadgrams)) {
+            table = QuadgramTable.load(in);
+        }
+        try (QuoteCorpusBuilder builder = new QuoteCorpusBuilder();
+             QuoteIngester ingester = new QuoteIngester(table, builder)) {
+            for (String text : paths.subList(0, paths.size() - 1)) {
+                Path file = Paths.get(text);
+                String name = file.getFileName().toString().replaceFirst("\\.[^.]*$", "");
+                ingester.ingest(file, "- " + (person != null ? person : name));
+            }
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(paths.get(paths.size() - 1)))) {
+                ingester.finish(out);
+            }
+            System.out.println(ingester.getKept() + " quotes kept from " + ingester.getSentences() + " sentences");
+        }
+    }
+}